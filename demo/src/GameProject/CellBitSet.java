@@ -0,0 +1,50 @@
+package GameProject;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Fixed-size set of board cells packed 64 per long word.
+// Updates are lock-free, so both players' handler threads can share one instance.
+class CellBitSet {
+    private final AtomicLongArray words;
+    private final int size;
+
+    public CellBitSet(int size) {
+        this.size = size;
+        this.words = new AtomicLongArray((size + 63) >>> 6);
+    }
+
+    // Set a cell; returns true only for the caller that actually flipped it
+    public boolean add(int cell) {
+        Objects.checkIndex(cell, size);
+        int word = cell >>> 6;
+        long mask = 1L << cell;
+        while (true) {
+            long current = words.get(word);
+            if ((current & mask) != 0) {
+                return false;
+            }
+            if (words.compareAndSet(word, current, current | mask)) {
+                return true;
+            }
+        }
+    }
+
+    public boolean contains(int cell) {
+        Objects.checkIndex(cell, size);
+        return (words.get(cell >>> 6) & (1L << cell)) != 0;
+    }
+
+    // Number of cells currently set
+    public int count() {
+        int total = 0;
+        for (int i = 0; i < words.length(); i++) {
+            total += Long.bitCount(words.get(i));
+        }
+        return total;
+    }
+
+    public int size() {
+        return size;
+    }
+}
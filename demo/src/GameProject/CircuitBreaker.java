@@ -0,0 +1,77 @@
+package GameProject;
+
+// Fails database calls fast while the database looks unreachable.
+// After failureThreshold failures in a row the breaker opens and callers are
+// turned away for openMillis. The next caller after that is let through as a
+// probe (half-open): if it succeeds the breaker closes, otherwise it opens
+// again. Only the probe gets through while half-open, and a probe that never
+// reports back is replaced by another one after openMillis.
+class CircuitBreaker {
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openMillis;
+
+    // volatile so the closed-state checks can skip the lock
+    private volatile State state = State.CLOSED;
+    private volatile int consecutiveFailures;
+    private long openedAt;
+    private long rejectedCount;
+
+    public CircuitBreaker(String name, int failureThreshold, long openMillis) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    // false if the call should fail fast; true for the half-open probe too
+    public boolean allowRequest() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            if (state == State.CLOSED || now - openedAt >= openMillis) {
+                if (state != State.CLOSED) {
+                    state = State.HALF_OPEN;
+                    openedAt = now;
+                }
+                return true;
+            }
+            rejectedCount++;
+            return false;
+        }
+    }
+
+    public void recordSuccess() {
+        if (state == State.CLOSED && consecutiveFailures == 0) {
+            return;
+        }
+        synchronized (this) {
+            consecutiveFailures = 0;
+            if (state != State.CLOSED) {
+                state = State.CLOSED;
+                System.out.println(name + " circuit closed - database reachable again");
+            }
+        }
+    }
+
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+            System.err.println(name + " circuit open - failing fast for " + openMillis / 1000 + "s after " +
+                    consecutiveFailures + " failure(s)");
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized long getRejectedCount() {
+        return rejectedCount;
+    }
+}
@@ -0,0 +1,348 @@
+package GameProject;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+// Shared JDBC connection pool for DatabaseManager and UserAuthManager.
+// Connections are checked with isValid() when borrowed, so ones dropped by
+// MySQL's wait_timeout are replaced transparently. Closing a borrowed
+// connection hands it back to the pool.
+//
+// Every statement gets a QUERY_TIMEOUT_SECONDS timeout and new connections a
+// connect timeout, so a hung server can't block a caller indefinitely.
+// Timeouts and connection errors feed a circuit breaker; while it is open
+// getConnection() fails at once instead of waiting on the database.
+// Statements are traced into QueryStats (see TracedStatement).
+class ConnectionPool implements DataSource {
+    private static final String DB_URL = "jdbc:mysql://localhost:3306/game_hub?rewriteBatchedStatements=true&useCursorFetch=true" +
+            "&connectTimeout=3000";
+    private static final String DB_USER = "root";
+    private static final String DB_PASSWORD = "";
+
+    private static final int MIN_SIZE = 2;
+    private static final int MAX_SIZE = 10;
+    private static final long BORROW_TIMEOUT_MS = 5_000;
+    private static final long LEAK_THRESHOLD_MS = 30_000;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    private static final int QUERY_TIMEOUT_SECONDS = 5;
+    private static final int BREAKER_FAILURES = 5;
+    private static final long BREAKER_OPEN_MS = 10_000;
+    private static final long STATS_DUMP_SECONDS = 60;
+
+    private static ConnectionPool instance;
+
+    private final BlockingQueue<Connection> idle = new LinkedBlockingQueue<>();
+    private final Semaphore permits = new Semaphore(MAX_SIZE, true);
+    private final Map<Connection, Lease> leases = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "connection-pool-housekeeper");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean closed = false;
+    private final CircuitBreaker breaker = new CircuitBreaker("Database", BREAKER_FAILURES, BREAKER_OPEN_MS);
+    private final QueryStats queryStats = new QueryStats(StorageBackend.dataDir().resolve("slow-queries.log"),
+            StorageBackend.dataDir().resolve("query-stats.txt"));
+
+    // Pool-wait metrics
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong leakCount = new AtomicLong();
+
+    private ConnectionPool() {
+        try {
+            Class.forName("com.mysql.cj.jdbc.Driver");
+        } catch (ClassNotFoundException e) {
+            System.err.println("MySQL JDBC Driver not found!");
+            e.printStackTrace();
+        }
+
+        try {
+            for (int i = 0; i < MIN_SIZE; i++) {
+                idle.add(DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD));
+            }
+            System.out.println("Database connected successfully!");
+        } catch (SQLException e) {
+            breaker.recordFailure();
+            System.err.println("Connection failed!");
+            e.printStackTrace();
+        }
+
+        housekeeper.scheduleAtFixedRate(this::housekeeping, 5, 5, TimeUnit.SECONDS);
+        housekeeper.scheduleAtFixedRate(queryStats::dump, STATS_DUMP_SECONDS, STATS_DUMP_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public static synchronized ConnectionPool getInstance() {
+        if (instance == null) {
+            instance = new ConnectionPool();
+        }
+        return instance;
+    }
+
+    // Close the shared pool, if this process ever opened it. Repositories
+    // don't close it themselves, so call this once after all of them are closed.
+    public static synchronized void closeInstance() {
+        if (instance != null) {
+            instance.close();
+        }
+    }
+
+    // Borrow a connection; close() on it returns it to the pool
+    @Override
+    public Connection getConnection() throws SQLException {
+        return getConnection("unnamed");
+    }
+
+    // Same, with its pool wait and statements recorded in the query stats under queryName
+    public Connection getConnection(String queryName) throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        if (!breaker.allowRequest()) {
+            throw new SQLTransientConnectionException("Database unavailable - try again shortly");
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(BORROW_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                timeoutCount.incrementAndGet();
+                throw new SQLTimeoutException("Timed out waiting for a database connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for a database connection", e);
+        }
+        long waitNanos = System.nanoTime() - start;
+        recordWait(waitNanos);
+        queryStats.recordWait(queryName, waitNanos);
+
+        try {
+            Connection physical = takeValidConnection();
+            leases.put(physical, new Lease(Thread.currentThread().getName(), new Throwable("Connection borrowed here")));
+            return wrap(physical, queryName);
+        } catch (SQLException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private Connection takeValidConnection() throws SQLException {
+        Connection candidate;
+        while ((candidate = idle.poll()) != null) {
+            if (candidate.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                return candidate;
+            }
+            closeQuietly(candidate);
+        }
+
+        Connection connection;
+        try {
+            connection = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        } catch (SQLException e) {
+            breaker.recordFailure();
+            throw e;
+        }
+        // A fresh connection is as good a half-open probe as any query
+        if (breaker.getState() == CircuitBreaker.State.HALF_OPEN) {
+            breaker.recordSuccess();
+        }
+        return connection;
+    }
+
+    private void release(Connection physical) {
+        leases.remove(physical);
+        try {
+            if (closed || physical.isClosed()) {
+                closeQuietly(physical);
+            } else {
+                // Never hand the next borrower a half-finished transaction
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                idle.add(physical);
+            }
+        } catch (SQLException e) {
+            closeQuietly(physical);
+        } finally {
+            permits.release();
+        }
+    }
+
+    // Proxy whose close() returns the physical connection instead of closing it.
+    // Its statements are traced under queryName.
+    private Connection wrap(Connection physical, String queryName) {
+        boolean[] returned = {false};
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":
+                            synchronized (returned) {
+                                if (!returned[0]) {
+                                    returned[0] = true;
+                                    release(physical);
+                                }
+                            }
+                            return null;
+                        case "isClosed":
+                            return returned[0] || physical.isClosed();
+                        default:
+                            if (returned[0]) {
+                                throw new SQLException("Connection already returned to the pool");
+                            }
+                            Object result;
+                            try {
+                                result = method.invoke(physical, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                            if (!(result instanceof Statement)) {
+                                return result;
+                            }
+                            ((Statement) result).setQueryTimeout(QUERY_TIMEOUT_SECONDS);
+                            String sql = method.getName().startsWith("prepare") ? (String) args[0] : null;
+                            return TracedStatement.wrap((Statement) result, method.getReturnType(), queryName, sql,
+                                    breaker, queryStats);
+                    }
+                });
+    }
+
+
+    private void housekeeping() {
+        // Report connections held longer than the leak threshold, once each
+        long now = System.currentTimeMillis();
+        for (Lease lease : leases.values()) {
+            if (!lease.reported && now - lease.borrowedAt > LEAK_THRESHOLD_MS) {
+                lease.reported = true;
+                leakCount.incrementAndGet();
+                System.err.println("Possible connection leak: held by " + lease.threadName +
+                        " for " + (now - lease.borrowedAt) + " ms");
+                lease.borrowSite.printStackTrace();
+            }
+        }
+
+        // Keep a few warm connections around
+        try {
+            while (!closed && idle.size() + leases.size() < MIN_SIZE) {
+                idle.add(DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD));
+            }
+        } catch (SQLException e) {
+            // Database unreachable; try again on the next run
+        }
+    }
+
+    private void recordWait(long waitNanos) {
+        borrowCount.incrementAndGet();
+        totalWaitNanos.addAndGet(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    public long getBorrowCount() { return borrowCount.get(); }
+    public double getAverageWaitMillis() {
+        long borrows = borrowCount.get();
+        return borrows > 0 ? totalWaitNanos.get() / 1_000_000.0 / borrows : 0;
+    }
+    public double getMaxWaitMillis() { return maxWaitNanos.get() / 1_000_000.0; }
+    public long getTimeoutCount() { return timeoutCount.get(); }
+    public long getLeakCount() { return leakCount.get(); }
+    public int getActiveCount() { return leases.size(); }
+    public int getIdleCount() { return idle.size(); }
+    public CircuitBreaker.State getCircuitState() { return breaker.getState(); }
+    public long getRejectedCount() { return breaker.getRejectedCount(); }
+
+    // Per-query timing table, also written to query-stats.txt every STATS_DUMP_SECONDS
+    public String getQueryStatsReport() {
+        return queryStats.report();
+    }
+
+    public String getStatsSummary() {
+        return String.format("active=%d idle=%d borrows=%d avgWait=%.2fms maxWait=%.2fms timeouts=%d leaks=%d " +
+                        "circuit=%s rejected=%d",
+                getActiveCount(), getIdleCount(), getBorrowCount(), getAverageWaitMillis(),
+                getMaxWaitMillis(), getTimeoutCount(), getLeakCount(), getCircuitState(), getRejectedCount());
+    }
+
+    // Close idle connections and stop handing out new ones; borrowed ones close on return
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        housekeeper.shutdownNow();
+
+        Connection connection;
+        while ((connection = idle.poll()) != null) {
+            closeQuietly(connection);
+        }
+        queryStats.dump();
+        System.out.println("Database connection pool closed. " + getStatsSummary());
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            // Already broken, nothing to do
+        }
+    }
+
+    // DataSource plumbing
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Pool uses fixed credentials");
+    }
+
+    @Override
+    public PrintWriter getLogWriter() { return null; }
+
+    @Override
+    public void setLogWriter(PrintWriter out) { }
+
+    @Override
+    public void setLoginTimeout(int seconds) { DriverManager.setLoginTimeout(seconds); }
+
+    @Override
+    public int getLoginTimeout() { return DriverManager.getLoginTimeout(); }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+
+    private static class Lease {
+        final String threadName;
+        final Throwable borrowSite;
+        final long borrowedAt = System.currentTimeMillis();
+        volatile boolean reported = false;
+
+        Lease(String threadName, Throwable borrowSite) {
+            this.threadName = threadName;
+            this.borrowSite = borrowSite;
+        }
+    }
+}
@@ -1,256 +1,323 @@
 package GameProject;
 
 import java.sql.*;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
 
 public class DatabaseManager {
-    private static final String DB_URL = "jdbc:mysql://localhost:3306/game_hub";
-    private static final String DB_USER = "root";
-    private static final String DB_PASSWORD = "";
+    // How long a leaderboard read waits for the database before using cached rows
+    private static final long LEADERBOARD_WAIT_MS = Long.getLong("leaderboard.waitMillis", 1500);
 
     private static DatabaseManager instance;
-    private Connection connection;
+    private final ScoreRepository repository;
+    private final ScoreWriter scoreWriter;
+    private final ScoreSpool spool;
+    private final LeaderboardCache leaderboards;
+    private final WindowedLeaderboards windowedLeaderboards;
+    private final RankIndex ranks;
+    private final ScoreHistograms histograms;
+    // Last stats read per player and game, shown when the database is slow
+    private final Map<String, PlayerStats> playerStats = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Void>> loading = new ConcurrentHashMap<>();
+    private final ExecutorService leaderboardLoader = Executors.newFixedThreadPool(2, r -> {
+        Thread thread = new Thread(r, "leaderboard-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     private DatabaseManager() {
-        try {
-            Class.forName("com.mysql.cj.jdbc.Driver");
-            connection = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
-            System.out.println("Database connected successfully!");
-        } catch (ClassNotFoundException e) {
-            System.err.println("MySQL JDBC Driver not found!");
-            e.printStackTrace();
-        } catch (SQLException e) {
-            System.err.println("Connection failed!");
-            e.printStackTrace();
-        }
+        repository = StorageBackend.createScoreRepository();
+        // -Dleaderboard.ttlSeconds=0 keeps cached boards until restart
+        long ttlMillis = Long.getLong("leaderboard.ttlSeconds", 60) * 1000;
+        leaderboards = new LeaderboardCache(ttlMillis);
+        windowedLeaderboards = new WindowedLeaderboards(ttlMillis);
+        ranks = new RankIndex(ttlMillis);
+        histograms = new ScoreHistograms(StorageBackend.dataDir().resolve("score-histograms.bin"), repository);
+        Consumer<GameScore> onSaved = score -> {
+            leaderboards.add(score);
+            windowedLeaderboards.add(score);
+            ranks.add(score);
+            histograms.record(score);
+        };
+        // Scores the database can't take wait here until it is back
+        spool = new ScoreSpool(StorageBackend.dataDir().resolve("score-spool.log"), repository, onSaved);
+        scoreWriter = new ScoreWriter(repository, spool, onSaved);
+
+        Thread warmup = new Thread(this::warmLeaderboards, "leaderboard-warmup");
+        warmup.setDaemon(true);
+        warmup.start();
     }
 
-    public static DatabaseManager getInstance() {
+    public static synchronized DatabaseManager getInstance() {
         if (instance == null) {
             instance = new DatabaseManager();
         }
         return instance;
     }
 
-    // UPDATED: Save score only if user is logged in
-    public boolean saveScore(String gameName, String playerName, int score,
-                             String gameMode, String difficulty, int playTime, boolean won) {
+    // UPDATED: Save score only if user is logged in.
+    // The insert happens on the score writer thread; the future completes
+    // with true once the row is committed.
+    public CompletableFuture<Boolean> saveScore(String gameName, String playerName, int score,
+                                                String gameMode, String difficulty, int playTime, boolean won) {
 
         // Check if user is logged in
         UserAuthManager authManager = UserAuthManager.getInstance();
         if (!authManager.isLoggedIn()) {
             System.out.println("Guest mode - Score not saved");
-            return false; // Guest mode, don't save
+            return CompletableFuture.completedFuture(false); // Guest mode, don't save
         }
 
         // Use the logged-in username
         String username = authManager.getCurrentUser().getUsername();
 
-        String sql = "INSERT INTO game_scores (game_name, player_name, score, game_mode, difficulty, play_time, won) " +
-                "VALUES (?, ?, ?, ?, ?, ?, ?)";
+        return scoreWriter.submit(new ScoreWriter.PendingScore(
+                gameName, username, score, gameMode, difficulty, playTime, won));
+    }
+
+    // Get top scores for a specific game and mode, from the leaderboard cache when possible.
+    // A cache miss waits at most LEADERBOARD_WAIT_MS for the database, then
+    // falls back to whatever the cache still holds.
+    public List<GameScore> getTopScores(String gameName, String gameMode, int limit) {
+        List<GameScore> cached = leaderboards.get(gameName, gameMode, limit);
+        if (cached != null) {
+            return cached;
+        }
+
+        if (limit > LeaderboardCache.CAPACITY) {
+            try {
+                return repository.findTopScores(gameName, gameMode, limit);
+            } catch (SQLException e) {
+                System.err.println("Error fetching scores: " + e.getMessage());
+                e.printStackTrace();
+                return new ArrayList<>();
+            }
+        }
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, gameName);
-            pstmt.setString(2, username); // Use logged-in username
-            pstmt.setInt(3, score);
-            pstmt.setString(4, gameMode);
-            pstmt.setString(5, difficulty);
-            pstmt.setInt(6, playTime);
-            pstmt.setBoolean(7, won);
+        awaitLoad("top\0" + gameName + '\0' + gameMode, () -> leaderboards.load(gameName, gameMode,
+                repository.findTopScores(gameName, gameMode, LeaderboardCache.CAPACITY)));
+        List<GameScore> scores = leaderboards.getStale(gameName, gameMode, limit);
+        return scores != null ? scores : new ArrayList<>();
+    }
 
-            int rowsAffected = pstmt.executeUpdate();
-            System.out.println("Score saved successfully for user: " + username);
-            return rowsAffected > 0;
+    // Today's best scores (since local midnight)
+    public List<GameScore> getDailyTopScores(String gameName, String gameMode, int limit) {
+        return getWindowedTopScores(gameName, gameMode, 1, limit);
+    }
 
-        } catch (SQLException e) {
-            System.err.println("Error saving score: " + e.getMessage());
-            e.printStackTrace();
-            return false;
+    // Best scores of the last seven days, today included
+    public List<GameScore> getWeeklyTopScores(String gameName, String gameMode, int limit) {
+        return getWindowedTopScores(gameName, gameMode, WindowedLeaderboards.DAYS_KEPT, limit);
+    }
+
+    private List<GameScore> getWindowedTopScores(String gameName, String gameMode, int days, int limit) {
+        List<GameScore> cached = windowedLeaderboards.get(gameName, gameMode, days, limit);
+        if (cached != null) {
+            return cached;
         }
+
+        if (limit > LeaderboardCache.CAPACITY) {
+            try {
+                LocalDate today = windowedLeaderboards.today();
+                return repository.findTopScoresBetween(gameName, gameMode,
+                        windowedLeaderboards.startOf(today.minusDays(days - 1)),
+                        windowedLeaderboards.startOf(today.plusDays(1)), limit);
+            } catch (SQLException e) {
+                System.err.println("Error fetching scores: " + e.getMessage());
+                e.printStackTrace();
+                return new ArrayList<>();
+            }
+        }
+
+        awaitLoad("window\0" + gameName + '\0' + gameMode, () -> loadWindowedLeaderboard(gameName, gameMode));
+        List<GameScore> scores = windowedLeaderboards.getStale(gameName, gameMode, days, limit);
+        return scores != null ? scores : new ArrayList<>();
     }
 
-    // Get top scores for a specific game and mode
-    public List<GameScore> getTopScores(String gameName, String gameMode, int limit) {
+    // Run a leaderboard, rank or stats load on the loader threads and wait up to
+    // LEADERBOARD_WAIT_MS for it. A slow load keeps going and fills the cache
+    // for later calls; only one runs per board at a time.
+    private void awaitLoad(String key, SqlAction action) {
+        CompletableFuture<Void> load = loading.get(key);
+        if (load == null) {
+            CompletableFuture<Void> started = new CompletableFuture<>();
+            load = loading.putIfAbsent(key, started);
+            if (load == null) {
+                load = started;
+                leaderboardLoader.execute(() -> {
+                    try {
+                        action.run();
+                        started.complete(null);
+                    } catch (SQLException | RuntimeException e) {
+                        started.completeExceptionally(e);
+                    } finally {
+                        loading.remove(key, started);
+                    }
+                });
+            }
+        }
+
+        try {
+            load.get(LEADERBOARD_WAIT_MS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            System.err.println("Leaderboard query is slow - showing cached results");
+        } catch (ExecutionException e) {
+            System.err.println("Error fetching scores: " + e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // One top-N query per day bucket
+    private void loadWindowedLeaderboard(String gameName, String gameMode) throws SQLException {
+        LocalDate today = windowedLeaderboards.today();
         List<GameScore> scores = new ArrayList<>();
-        String sql = "SELECT * FROM game_scores WHERE game_name = ? AND game_mode = ? " +
-                "ORDER BY score DESC, played_at DESC LIMIT ?";
-
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, gameName);
-            pstmt.setString(2, gameMode);
-            pstmt.setInt(3, limit);
-
-            ResultSet rs = pstmt.executeQuery();
-            while (rs.next()) {
-                GameScore score = new GameScore(
-                        rs.getInt("score_id"),
-                        rs.getString("game_name"),
-                        rs.getString("player_name"),
-                        rs.getInt("score"),
-                        rs.getString("game_mode"),
-                        rs.getString("difficulty"),
-                        rs.getInt("play_time"),
-                        rs.getBoolean("won"),
-                        rs.getTimestamp("played_at")
-                );
-                scores.add(score);
+        for (int i = 0; i < WindowedLeaderboards.DAYS_KEPT; i++) {
+            LocalDate day = today.minusDays(i);
+            scores.addAll(repository.findTopScoresBetween(gameName, gameMode,
+                    windowedLeaderboards.startOf(day), windowedLeaderboards.startOf(day.plusDays(1)),
+                    LeaderboardCache.CAPACITY));
+        }
+        windowedLeaderboards.load(gameName, gameMode, scores);
+    }
+
+    // Load every (game, mode) leaderboard that has scores, so the first dialog opens instantly
+    private void warmLeaderboards() {
+        try {
+            List<String[]> boards = repository.findLeaderboards();
+            for (String[] board : boards) {
+                leaderboards.load(board[0], board[1],
+                        repository.findTopScores(board[0], board[1], LeaderboardCache.CAPACITY));
+                loadWindowedLeaderboard(board[0], board[1]);
+                ranks.load(board[0], board[1], repository.findBestScores(board[0], board[1]));
             }
+            System.out.println("Leaderboards warmed: " + boards.size());
         } catch (SQLException e) {
-            System.err.println("Error fetching scores: " + e.getMessage());
-            e.printStackTrace();
+            System.err.println("Error warming leaderboards: " + e.getMessage());
         }
+    }
 
-        return scores;
+    // The player's position by best score (1 = top), or 0 if they have no
+    // score on this board. Served from the rank index, not a COUNT query.
+    public int getRank(String playerName, String gameName, String gameMode) {
+        return loadRanks(gameName, gameMode) ? ranks.rank(playerName, gameName, gameMode) : 0;
+    }
+
+    // Number of players with at least one score on this board
+    public int getRankedPlayerCount(String gameName, String gameMode) {
+        return loadRanks(gameName, gameMode) ? ranks.playerCount(gameName, gameMode) : 0;
+    }
+
+    // The player and up to k players ranked either side, best first
+    public List<RankedPlayer> getAroundMe(String playerName, String gameName, String gameMode, int k) {
+        return loadRanks(gameName, gameMode) ? ranks.around(playerName, gameName, gameMode, k) : new ArrayList<>();
+    }
+
+    // Waits at most LEADERBOARD_WAIT_MS like the leaderboards; false if no
+    // complete board is cached, so callers show no rank rather than a guess
+    private boolean loadRanks(String gameName, String gameMode) {
+        if (ranks.isLoaded(gameName, gameMode)) {
+            return true;
+        }
+        awaitLoad("ranks\0" + gameName + '\0' + gameMode, () -> ranks.load(gameName, gameMode,
+                repository.findBestScores(gameName, gameMode)));
+        return ranks.isCached(gameName, gameMode);
     }
 
-    // Get player statistics
+    // Percentage of scores on this game, mode and difficulty that are lower
+    // than the given one, or -1 if none are recorded. No database query.
+    public double getScorePercentile(String gameName, String gameMode, String difficulty, int score) {
+        return histograms.percentileOf(gameName, gameMode, difficulty, score);
+    }
+
+    // Get player statistics from the stats rollup. Waits at most
+    // LEADERBOARD_WAIT_MS, then returns the last stats read for this player,
+    // or null if there are none
     public PlayerStats getPlayerStats(String playerName, String gameName) {
-        String sql = "SELECT COUNT(*) as games_played, " +
-                "MAX(score) as best_score, " +
-                "AVG(score) as avg_score, " +
-                "SUM(CASE WHEN won = TRUE THEN 1 ELSE 0 END) as wins " +
-                "FROM game_scores WHERE player_name = ? AND game_name = ?";
-
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, playerName);
-            pstmt.setString(2, gameName);
-
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                return new PlayerStats(
-                        playerName,
-                        gameName,
-                        rs.getInt("games_played"),
-                        rs.getInt("best_score"),
-                        rs.getDouble("avg_score"),
-                        rs.getInt("wins")
-                );
+        String key = playerName + '\0' + gameName;
+        awaitLoad("stats\0" + key, () -> {
+            PlayerStats stats = repository.findPlayerStats(playerName, gameName);
+            if (stats != null) {
+                playerStats.put(key, stats);
+            } else {
+                playerStats.remove(key);
             }
+        });
+        return playerStats.get(key);
+    }
+
+    // Per-game statistics for every game the player has played
+    public List<PlayerStats> getAllPlayerStats(String playerName) {
+        try {
+            return repository.findAllPlayerStats(playerName);
+        } catch (SQLException e) {
+            System.err.println("Error fetching player stats: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        return new ArrayList<>();
+    }
+
+    // Per-game statistics for a logged-in account, looked up by its user id
+    public List<PlayerStats> getAccountStats(int userId, String playerName) {
+        try {
+            return repository.findAccountStats(userId, playerName);
         } catch (SQLException e) {
             System.err.println("Error fetching player stats: " + e.getMessage());
             e.printStackTrace();
         }
 
-        return null;
+        return new ArrayList<>();
     }
 
-    // Get all scores for a player
+    // Get all scores for a player, newest first. Prefer getPlayerScoresPage or
+    // streamPlayerScores for long histories; this keeps every row in memory.
     public List<GameScore> getPlayerScores(String playerName) {
         List<GameScore> scores = new ArrayList<>();
-        String sql = "SELECT * FROM game_scores WHERE player_name = ? ORDER BY played_at DESC";
-
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, playerName);
-            ResultSet rs = pstmt.executeQuery();
-
-            while (rs.next()) {
-                GameScore score = new GameScore(
-                        rs.getInt("score_id"),
-                        rs.getString("game_name"),
-                        rs.getString("player_name"),
-                        rs.getInt("score"),
-                        rs.getString("game_mode"),
-                        rs.getString("difficulty"),
-                        rs.getInt("play_time"),
-                        rs.getBoolean("won"),
-                        rs.getTimestamp("played_at")
-                );
-                scores.add(score);
-            }
+        streamPlayerScores(playerName, scores::add);
+        return scores;
+    }
+
+    // One page of a player's history, newest first. Pass null for the first
+    // page, then the last score of the previous page; an empty list means done.
+    public List<GameScore> getPlayerScoresPage(String playerName, GameScore after, int pageSize) {
+        try {
+            return repository.findPlayerScoresPage(playerName, after, pageSize);
         } catch (SQLException e) {
             System.err.println("Error fetching player scores: " + e.getMessage());
             e.printStackTrace();
         }
 
-        return scores;
+        return new ArrayList<>();
     }
 
-    // Close connection
-    public void closeConnection() {
+    // Feed a player's whole history to action, newest first, without holding
+    // it in memory. Returns the number of rows delivered.
+    public int streamPlayerScores(String playerName, Consumer<GameScore> action) {
         try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-                System.out.println("Database connection closed.");
-            }
+            return repository.streamPlayerScores(playerName, action);
         } catch (SQLException e) {
-            System.err.println("Error closing connection: " + e.getMessage());
+            System.err.println("Error streaming player scores: " + e.getMessage());
             e.printStackTrace();
         }
-    }
-}
-
-// GameScore data class
-class GameScore {
-    private int scoreId;
-    private String gameName;
-    private String playerName;
-    private int score;
-    private String gameMode;
-    private String difficulty;
-    private int playTime;
-    private boolean won;
-    private Timestamp playedAt;
-
-    public GameScore(int scoreId, String gameName, String playerName, int score,
-                     String gameMode, String difficulty, int playTime, boolean won, Timestamp playedAt) {
-        this.scoreId = scoreId;
-        this.gameName = gameName;
-        this.playerName = playerName;
-        this.score = score;
-        this.gameMode = gameMode;
-        this.difficulty = difficulty;
-        this.playTime = playTime;
-        this.won = won;
-        this.playedAt = playedAt;
-    }
 
-    public int getScoreId() { return scoreId; }
-    public String getGameName() { return gameName; }
-    public String getPlayerName() { return playerName; }
-    public int getScore() { return score; }
-    public String getGameMode() { return gameMode; }
-    public String getDifficulty() { return difficulty; }
-    public int getPlayTime() { return playTime; }
-    public boolean isWon() { return won; }
-    public Timestamp getPlayedAt() { return playedAt; }
-
-    @Override
-    public String toString() {
-        return String.format("%s - %s: %d points (%s)",
-                playerName, gameName, score, gameMode);
+        return 0;
     }
-}
-
-// PlayerStats data class
-class PlayerStats {
-    private String playerName;
-    private String gameName;
-    private int gamesPlayed;
-    private int bestScore;
-    private double avgScore;
-    private int wins;
-
-    public PlayerStats(String playerName, String gameName, int gamesPlayed,
-                       int bestScore, double avgScore, int wins) {
-        this.playerName = playerName;
-        this.gameName = gameName;
-        this.gamesPlayed = gamesPlayed;
-        this.bestScore = bestScore;
-        this.avgScore = avgScore;
-        this.wins = wins;
+
+    private interface SqlAction {
+        void run() throws SQLException;
     }
 
-    public String getPlayerName() { return playerName; }
-    public String getGameName() { return gameName; }
-    public int getGamesPlayed() { return gamesPlayed; }
-    public int getBestScore() { return bestScore; }
-    public double getAvgScore() { return avgScore; }
-    public int getWins() { return wins; }
-
-    @Override
-    public String toString() {
-        return String.format("%s (%s): %d games, Best: %d, Avg: %.1f, Wins: %d",
-                playerName, gameName, gamesPlayed, bestScore, avgScore, wins);
+    // Flush queued scores, then close the score store
+    public void closeConnection() {
+        scoreWriter.close();
+        spool.close();
+        leaderboardLoader.shutdownNow();
+        histograms.close();
+        repository.close();
     }
 }
\ No newline at end of file
@@ -0,0 +1,138 @@
+package GameProject;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+// Unreliable UDP side-channel used for Pacman state packets.
+// Messages use the same "COMMAND:field:..." text format as the TCP protocol,
+// one message per datagram. Anything that must arrive stays on TCP.
+class DatagramLink implements Closeable {
+    private static final int MAX_PACKET = 1200;
+
+    private final DatagramChannel channel;
+    private final Selector selector;
+    private final LossSimulator loss;
+    private final ByteBuffer receiveBuffer = ByteBuffer.allocate(MAX_PACKET);
+
+    private DatagramLink(DatagramChannel channel, LossSimulator loss) throws IOException {
+        this.channel = channel;
+        this.loss = loss;
+        channel.configureBlocking(false);
+        this.selector = Selector.open();
+        channel.register(selector, SelectionKey.OP_READ);
+    }
+
+    // Server side: listen on a local port
+    public static DatagramLink bind(int port, LossSimulator loss) throws IOException {
+        DatagramChannel channel = DatagramChannel.open();
+        channel.bind(new InetSocketAddress(port));
+        return new DatagramLink(channel, loss);
+    }
+
+    // Client side: talk to a single server address
+    public static DatagramLink connect(SocketAddress server, LossSimulator loss) throws IOException {
+        DatagramChannel channel = DatagramChannel.open();
+        channel.connect(server);
+        return new DatagramLink(channel, loss);
+    }
+
+    // The port bind() picked when given 0
+    public int getLocalPort() throws IOException {
+        return ((InetSocketAddress) channel.getLocalAddress()).getPort();
+    }
+
+    public void send(String message, SocketAddress target) throws IOException {
+        if (loss.shouldDrop()) {
+            return;
+        }
+        channel.send(ByteBuffer.wrap(message.getBytes(StandardCharsets.UTF_8)), target);
+    }
+
+    public void send(String message) throws IOException {
+        if (loss.shouldDrop()) {
+            return;
+        }
+        channel.write(ByteBuffer.wrap(message.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    // Wait up to timeoutMillis for a datagram (0 = wait forever); null on timeout.
+    // Only one thread should receive on a link.
+    public Packet receive(long timeoutMillis) throws IOException {
+        while (true) {
+            if (selector.select(timeoutMillis) == 0 && timeoutMillis > 0) {
+                return null;
+            }
+            selector.selectedKeys().clear();
+
+            receiveBuffer.clear();
+            SocketAddress from = channel.receive(receiveBuffer);
+            if (from != null) {
+                receiveBuffer.flip();
+                String message = StandardCharsets.UTF_8.decode(receiveBuffer).toString();
+                return new Packet(message, from);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        selector.close();
+        channel.close();
+    }
+
+    static class Packet {
+        final String message;
+        final SocketAddress from;
+
+        Packet(String message, SocketAddress from) {
+            this.message = message;
+            this.from = from;
+        }
+    }
+
+    // Decides which outgoing datagrams get dropped, so packet loss can be
+    // reproduced on localhost
+    interface LossSimulator {
+        boolean shouldDrop();
+
+        static LossSimulator none() {
+            return () -> false;
+        }
+
+        // dropRate 0.2 drops about 20% of the datagrams sent through the link
+        static LossSimulator random(double dropRate) {
+            return random(dropRate, new Random());
+        }
+
+        // Seeded, so a test run drops the same datagrams every time
+        static LossSimulator random(double dropRate, Random random) {
+            return dropRate > 0 ? () -> random.nextDouble() < dropRate : none();
+        }
+    }
+
+    // Accepts each tick-stamped datagram only if it is newer than the last one
+    // accepted; anything late, duplicated or reordered is dropped
+    static class TickFilter {
+        private int lastTick;
+
+        public boolean accept(int tick) {
+            if (tick <= lastTick) {
+                return false;
+            }
+            lastTick = tick;
+            return true;
+        }
+
+        public void reset() {
+            lastTick = 0;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package GameProject;
+
+import java.io.*;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// Append-only text file of tab-separated records, used by the embedded stores.
+// Fields are URL-encoded so tabs and newlines in user input can't break a
+// record. A torn last line from a crash is skipped on load.
+class EmbeddedLog implements Closeable {
+    private static final String NULL_FIELD = "~";
+
+    private final Path file;
+    private final FileOutputStream out;
+    private final Writer writer;
+
+    public EmbeddedLog(Path file) throws IOException {
+        this.file = file;
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        this.out = new FileOutputStream(file.toFile(), true);
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    // Every complete record in the file, oldest first
+    public List<String[]> readAll() throws IOException {
+        List<String[]> records = new ArrayList<>();
+        byte[] bytes = Files.readAllBytes(file);
+        String text = new String(bytes, StandardCharsets.UTF_8);
+
+        int start = 0;
+        int newline;
+        while ((newline = text.indexOf('\n', start)) >= 0) {
+            String line = text.substring(start, newline);
+            start = newline + 1;
+            if (line.isEmpty()) {
+                continue;
+            }
+            String[] fields = line.split("\t", -1);
+            for (int i = 0; i < fields.length; i++) {
+                fields[i] = decode(fields[i]);
+            }
+            records.add(fields);
+        }
+        return records;
+    }
+
+    // Write the records and fsync before returning
+    public synchronized void append(List<String[]> records) throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (String[] record : records) {
+            for (int i = 0; i < record.length; i++) {
+                if (i > 0) {
+                    text.append('\t');
+                }
+                text.append(encode(record[i]));
+            }
+            text.append('\n');
+        }
+        writer.write(text.toString());
+        writer.flush();
+        out.getFD().sync();
+    }
+
+    public void append(String... record) throws IOException {
+        append(List.<String[]>of(record));
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+    private static String encode(String field) {
+        return field == null ? NULL_FIELD : URLEncoder.encode(field, StandardCharsets.UTF_8);
+    }
+
+    private static String decode(String field) {
+        return NULL_FIELD.equals(field) ? null : URLDecoder.decode(field, StandardCharsets.UTF_8);
+    }
+}
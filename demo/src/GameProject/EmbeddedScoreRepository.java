@@ -0,0 +1,278 @@
+package GameProject;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.function.Consumer;
+
+// Scores kept in a ScoreSegmentStore under the embedded data directory.
+// Every record is loaded into in-memory indexes at startup (one sorted set
+// per leaderboard, one per player's history, and running stats totals), so
+// leaderboard and stats reads never touch the disk.
+class EmbeddedScoreRepository implements ScoreRepository {
+    // History order: played_at DESC, score_id DESC
+    private static final Comparator<GameScore> HISTORY_ORDER = Comparator
+            .comparing(GameScore::getPlayedAt, Comparator.reverseOrder())
+            .thenComparing(Comparator.comparingInt(GameScore::getScoreId).reversed());
+    private static final int STREAM_PAGE_SIZE = 200;
+
+    private final ScoreSegmentStore store;
+    private final Map<String, TreeSet<GameScore>> boards = new HashMap<>();
+    private final Map<String, TreeSet<GameScore>> histories = new HashMap<>();
+    private final Map<String, Map<String, PlayerStatsRollup.Totals>> stats = new HashMap<>();
+    // player\0game -> {rating, games rated}, replayed from ratings.log
+    private final Map<String, int[]> ratings = new HashMap<>();
+    private final EmbeddedLog ratingsLog;
+    private int nextScoreId = 1;
+
+    public EmbeddedScoreRepository(Path dataDir) throws IOException {
+        this.store = new ScoreSegmentStore(dataDir.resolve("scores"));
+        store.loadAll().forEach(this::index);
+        importTextLog(dataDir.resolve("scores.log"));
+        this.ratingsLog = new EmbeddedLog(dataDir.resolve("ratings.log"));
+        for (String[] record : ratingsLog.readAll()) {
+            try {
+                ratings.put(record[1] + '\0' + record[2],
+                        new int[]{Integer.parseInt(record[3]), Integer.parseInt(record[4])});
+            } catch (RuntimeException e) {
+                System.err.println("Skipping bad ratings.log record: " + String.join(" ", record));
+            }
+        }
+    }
+
+    // Move scores from the older one-line-per-score text log into segments
+    private void importTextLog(Path textLog) throws IOException {
+        if (!Files.exists(textLog)) {
+            return;
+        }
+
+        List<GameScore> imported = new ArrayList<>();
+        try (EmbeddedLog log = new EmbeddedLog(textLog)) {
+            for (String[] record : log.readAll()) {
+                try {
+                    imported.add(new GameScore(nextScoreId + imported.size(), record[2], record[3],
+                            Integer.parseInt(record[4]), record[5], record[6], Integer.parseInt(record[7]),
+                            Boolean.parseBoolean(record[8]), new Timestamp(Long.parseLong(record[9]))));
+                } catch (RuntimeException e) {
+                    System.err.println("Skipping bad scores.log record: " + String.join(" ", record));
+                }
+            }
+        }
+        store.append(imported);
+        imported.forEach(this::index);
+        Files.move(textLog, textLog.resolveSibling("scores.log.imported"), StandardCopyOption.REPLACE_EXISTING);
+        System.out.println("Imported " + imported.size() + " scores from scores.log");
+    }
+
+    private void index(GameScore score) {
+        boards.computeIfAbsent(boardKey(score.getGameName(), score.getGameMode()), k -> new TreeSet<>(LeaderboardCache.ORDER))
+                .add(score);
+        histories.computeIfAbsent(score.getPlayerName(), k -> new TreeSet<>(HISTORY_ORDER)).add(score);
+        stats.computeIfAbsent(score.getPlayerName(), k -> new LinkedHashMap<>())
+                .computeIfAbsent(score.getGameName(), k -> new PlayerStatsRollup.Totals())
+                .add(score.getScore(), score.isWon());
+        nextScoreId = Math.max(nextScoreId, score.getScoreId() + 1);
+    }
+
+    @Override
+    public synchronized List<GameScore> saveScores(List<GameScore> scores) throws SQLException {
+        List<GameScore> saved = new ArrayList<>(scores.size());
+        int id = nextScoreId;
+        for (GameScore score : scores) {
+            GameScore row = score.withScoreId(id++);
+            saved.add(row);
+        }
+
+        // One fsync for the whole batch
+        try {
+            store.append(saved);
+        } catch (IOException e) {
+            throw new SQLException("Could not write score segment", e);
+        }
+        saved.forEach(this::index);
+        return saved;
+    }
+
+    // A failed append doesn't advance nextScoreId, so a retry reuses the same
+    // score ids and the segment store keeps each id once; no keys needed here
+    @Override
+    public List<GameScore> saveScoresOnce(List<GameScore> scores, List<String> eventIds) throws SQLException {
+        return saveScores(scores);
+    }
+
+    // The score segment and ratings.log are separate files, so a crash between
+    // the two appends can keep a match's rows without its rating change
+    @Override
+    public synchronized List<GameScore> saveMatches(List<MatchResult> matches) throws SQLException {
+        List<GameScore> scores = new ArrayList<>();
+        for (MatchResult match : matches) {
+            scores.addAll(match.toScores());
+        }
+        List<GameScore> saved = saveScores(scores);
+
+        Map<String, int[]> changed = new LinkedHashMap<>();
+        for (MatchResult match : matches) {
+            if (!match.isRated()) {
+                continue;
+            }
+            int[] first = rating(changed, match.first.playerName, match.gameName);
+            int[] second = rating(changed, match.second.playerName, match.gameName);
+            int[] updated = match.newRatings(first[0], second[0]);
+            first[0] = updated[0];
+            first[1]++;
+            second[0] = updated[1];
+            second[1]++;
+        }
+        if (changed.isEmpty()) {
+            return saved;
+        }
+
+        List<String[]> records = new ArrayList<>(changed.size());
+        changed.forEach((key, value) -> {
+            String[] names = key.split("\0", 2);
+            records.add(new String[]{"R", names[0], names[1], String.valueOf(value[0]), String.valueOf(value[1])});
+        });
+        try {
+            ratingsLog.append(records);
+        } catch (IOException e) {
+            throw new SQLException("Could not write ratings.log", e);
+        }
+        ratings.putAll(changed);
+        return saved;
+    }
+
+    // Working copy of a player's rating for this batch
+    private int[] rating(Map<String, int[]> changed, String playerName, String gameName) {
+        return changed.computeIfAbsent(playerName + '\0' + gameName, key -> {
+            int[] current = ratings.get(key);
+            return current != null ? current.clone() : new int[]{MatchResult.INITIAL_RATING, 0};
+        });
+    }
+
+    @Override
+    public synchronized List<GameScore> findTopScores(String gameName, String gameMode, int limit) {
+        return first(boards.get(boardKey(gameName, gameMode)), limit);
+    }
+
+    @Override
+    public synchronized List<GameScore> findTopScoresBetween(String gameName, String gameMode,
+                                                             Timestamp from, Timestamp to, int limit) {
+        List<GameScore> result = new ArrayList<>();
+        TreeSet<GameScore> board = boards.get(boardKey(gameName, gameMode));
+        if (board == null) {
+            return result;
+        }
+        for (GameScore score : board) {
+            if (result.size() >= limit) {
+                break;
+            }
+            if (!score.getPlayedAt().before(from) && score.getPlayedAt().before(to)) {
+                result.add(score);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized Map<String, Integer> findBestScores(String gameName, String gameMode) {
+        Map<String, Integer> bestScores = new HashMap<>();
+        TreeSet<GameScore> board = boards.get(boardKey(gameName, gameMode));
+        if (board != null) {
+            // Best first, so the first row seen for each player is their best
+            board.forEach(score -> bestScores.putIfAbsent(score.getPlayerName(), score.getScore()));
+        }
+        return bestScores;
+    }
+
+    @Override
+    public synchronized void countScores(ScoreCounter counter) {
+        for (TreeSet<GameScore> board : boards.values()) {
+            board.forEach(score -> counter.add(score.getGameName(), score.getGameMode(), score.getDifficulty(),
+                    score.getScore(), 1));
+        }
+    }
+
+    @Override
+    public synchronized List<String[]> findLeaderboards() {
+        List<String[]> result = new ArrayList<>();
+        for (TreeSet<GameScore> board : boards.values()) {
+            GameScore any = board.first();
+            result.add(new String[]{any.getGameName(), any.getGameMode()});
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized PlayerStats findPlayerStats(String playerName, String gameName) {
+        PlayerStatsRollup.Totals totals = stats.getOrDefault(playerName, Map.of()).get(gameName);
+        return (totals != null ? totals : new PlayerStatsRollup.Totals()).toPlayerStats(playerName, gameName);
+    }
+
+    @Override
+    public synchronized List<PlayerStats> findAllPlayerStats(String playerName) {
+        List<PlayerStats> result = new ArrayList<>();
+        stats.getOrDefault(playerName, Map.of())
+                .forEach((gameName, totals) -> result.add(totals.toPlayerStats(playerName, gameName)));
+        return result;
+    }
+
+    @Override
+    public List<PlayerStats> findAccountStats(int userId, String playerName) {
+        return findAllPlayerStats(playerName);
+    }
+
+    @Override
+    public synchronized List<GameScore> findPlayerScoresPage(String playerName, GameScore after, int pageSize) {
+        TreeSet<GameScore> history = histories.get(playerName);
+        if (history == null) {
+            return new ArrayList<>();
+        }
+        return first(after != null ? history.tailSet(after, false) : history, pageSize);
+    }
+
+    // Pages through the history so the lock is never held for the whole walk
+    @Override
+    public int streamPlayerScores(String playerName, Consumer<GameScore> action) {
+        int count = 0;
+        GameScore after = null;
+        List<GameScore> page;
+        while (!(page = findPlayerScoresPage(playerName, after, STREAM_PAGE_SIZE)).isEmpty()) {
+            page.forEach(action);
+            count += page.size();
+            after = page.get(page.size() - 1);
+        }
+        return count;
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            store.close();
+            ratingsLog.close();
+        } catch (IOException e) {
+            System.err.println("Error closing score store: " + e.getMessage());
+        }
+    }
+
+    private static List<GameScore> first(SortedSet<GameScore> scores, int limit) {
+        List<GameScore> result = new ArrayList<>();
+        if (scores == null) {
+            return result;
+        }
+        for (GameScore score : scores) {
+            if (result.size() >= limit) {
+                break;
+            }
+            result.add(score);
+        }
+        return result;
+    }
+
+    private static String boardKey(String gameName, String gameMode) {
+        return gameName + '\u0000' + gameMode;
+    }
+}
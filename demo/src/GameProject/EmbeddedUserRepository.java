@@ -0,0 +1,157 @@
+package GameProject;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Accounts kept in users.log under the embedded data directory.
+// Records: "U id username hash email createdAt" for a new account,
+// "L id lastLogin" for each login and "P id hash" for a password hash
+// change; the whole file is replayed at startup.
+class EmbeddedUserRepository implements UserRepository {
+    private final EmbeddedLog log;
+    private final Map<String, Account> byUsername = new HashMap<>();
+    private final Map<Integer, Account> byId = new HashMap<>();
+    private int nextUserId = 1;
+
+    public EmbeddedUserRepository(Path dataDir) throws IOException {
+        this.log = new EmbeddedLog(dataDir.resolve("users.log"));
+        for (String[] record : log.readAll()) {
+            replay(record);
+        }
+    }
+
+    private void replay(String[] record) {
+        try {
+            if ("U".equals(record[0])) {
+                Account account = new Account(Integer.parseInt(record[1]), record[2], record[3], record[4],
+                        new Timestamp(Long.parseLong(record[5])));
+                index(account);
+            } else if ("P".equals(record[0])) {
+                Account account = byId.get(Integer.parseInt(record[1]));
+                if (account != null) {
+                    account.passwordHash = record[2];
+                }
+            } else if ("L".equals(record[0])) {
+                Account account = byId.get(Integer.parseInt(record[1]));
+                if (account != null) {
+                    account.lastLogin = new Timestamp(Long.parseLong(record[2]));
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Skipping bad users.log record: " + String.join(" ", record));
+        }
+    }
+
+    private void index(Account account) {
+        byUsername.put(key(account.username), account);
+        byId.put(account.userId, account);
+        nextUserId = Math.max(nextUserId, account.userId + 1);
+    }
+
+    @Override
+    public synchronized void createUser(String username, String passwordHash, String email) throws SQLException {
+        if (byUsername.containsKey(key(username))) {
+            throw new SQLIntegrityConstraintViolationException("Duplicate username '" + username + "'");
+        }
+
+        Account account = new Account(nextUserId, username, passwordHash, email,
+                new Timestamp(System.currentTimeMillis()));
+        try {
+            log.append("U", String.valueOf(account.userId), username, passwordHash, email,
+                    String.valueOf(account.createdAt.getTime()));
+        } catch (IOException e) {
+            throw new SQLException("Could not write users.log", e);
+        }
+        index(account);
+    }
+
+    @Override
+    public synchronized Credentials findCredentials(String username) {
+        Account account = byUsername.get(key(username));
+        if (account == null) {
+            return null;
+        }
+        return new Credentials(new User(account.userId, account.username, account.email, account.createdAt),
+                account.passwordHash);
+    }
+
+    @Override
+    public synchronized void updatePasswordHash(int userId, String passwordHash) throws SQLException {
+        Account account = byId.get(userId);
+        if (account == null) {
+            return;
+        }
+        try {
+            log.append("P", String.valueOf(userId), passwordHash);
+        } catch (IOException e) {
+            throw new SQLException("Could not write users.log", e);
+        }
+        account.passwordHash = passwordHash;
+    }
+
+    // One fsync for the whole batch
+    @Override
+    public synchronized void updateLastLogins(Map<Integer, Timestamp> lastLogins) throws SQLException {
+        List<String[]> records = new ArrayList<>();
+        lastLogins.forEach((userId, lastLogin) -> {
+            if (byId.containsKey(userId)) {
+                records.add(new String[]{"L", String.valueOf(userId), String.valueOf(lastLogin.getTime())});
+            }
+        });
+        try {
+            log.append(records);
+        } catch (IOException e) {
+            throw new SQLException("Could not write users.log", e);
+        }
+        lastLogins.forEach((userId, lastLogin) -> {
+            Account account = byId.get(userId);
+            if (account != null) {
+                account.lastLogin = lastLogin;
+            }
+        });
+    }
+
+    @Override
+    public synchronized String findUsername(int userId) {
+        Account account = byId.get(userId);
+        return account != null ? account.username : null;
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            log.close();
+        } catch (IOException e) {
+            System.err.println("Error closing users.log: " + e.getMessage());
+        }
+    }
+
+    private static String key(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+    private static class Account {
+        final int userId;
+        final String username;
+        String passwordHash;
+        final String email;
+        final Timestamp createdAt;
+        Timestamp lastLogin;
+
+        Account(int userId, String username, String passwordHash, String email, Timestamp createdAt) {
+            this.userId = userId;
+            this.username = username;
+            this.passwordHash = passwordHash;
+            this.email = email;
+            this.createdAt = createdAt;
+        }
+    }
+}
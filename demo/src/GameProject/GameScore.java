@@ -0,0 +1,49 @@
+package GameProject;
+
+import java.sql.Timestamp;
+
+// GameScore data class
+class GameScore {
+    private int scoreId;
+    private String gameName;
+    private String playerName;
+    private int score;
+    private String gameMode;
+    private String difficulty;
+    private int playTime;
+    private boolean won;
+    private Timestamp playedAt;
+
+    public GameScore(int scoreId, String gameName, String playerName, int score,
+                     String gameMode, String difficulty, int playTime, boolean won, Timestamp playedAt) {
+        this.scoreId = scoreId;
+        this.gameName = gameName;
+        this.playerName = playerName;
+        this.score = score;
+        this.gameMode = gameMode;
+        this.difficulty = difficulty;
+        this.playTime = playTime;
+        this.won = won;
+        this.playedAt = playedAt;
+    }
+
+    public int getScoreId() { return scoreId; }
+    public String getGameName() { return gameName; }
+    public String getPlayerName() { return playerName; }
+    public int getScore() { return score; }
+    public String getGameMode() { return gameMode; }
+    public String getDifficulty() { return difficulty; }
+    public int getPlayTime() { return playTime; }
+    public boolean isWon() { return won; }
+    public Timestamp getPlayedAt() { return playedAt; }
+
+    public GameScore withScoreId(int scoreId) {
+        return new GameScore(scoreId, gameName, playerName, score, gameMode, difficulty, playTime, won, playedAt);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s - %s: %d points (%s)",
+                playerName, gameName, score, gameMode);
+    }
+}
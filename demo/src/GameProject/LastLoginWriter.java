@@ -0,0 +1,66 @@
+package GameProject;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Write-behind for users.last_login.
+// Logins only record the time here; a background task writes everything
+// recorded since the last flush in one batch every FLUSH_INTERVAL_MS.
+// Several logins by the same user in one interval become a single update.
+class LastLoginWriter {
+    private static final long FLUSH_INTERVAL_MS = 1000;
+
+    private final UserRepository repository;
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "last-login-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Map<Integer, Timestamp> pending = new HashMap<>();
+
+    public LastLoginWriter(UserRepository repository) {
+        this.repository = repository;
+        flusher.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stamp(int userId) {
+        pending.put(userId, new Timestamp(System.currentTimeMillis()));
+    }
+
+    private void flush() {
+        Map<Integer, Timestamp> batch;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new HashMap<>();
+        }
+
+        try {
+            repository.updateLastLogins(batch);
+        } catch (SQLException e) {
+            System.err.println("Error updating last login: " + e.getMessage());
+            // Keep them for the next flush unless a newer login replaced them
+            synchronized (this) {
+                batch.forEach(pending::putIfAbsent);
+            }
+        }
+    }
+
+    // Stop the timer and write whatever is still pending
+    public void close() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+}
@@ -0,0 +1,108 @@
+package GameProject;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+// In-memory top-N leaderboards, one per (game, mode).
+// Entries are kept in the same order as the leaderboard query
+// (score DESC, played_at DESC), so a read is just a copy of the head.
+class LeaderboardCache {
+    // Rows kept per board; getTopScores calls asking for more go to the database
+    public static final int CAPACITY = 100;
+
+    // Leaderboard order: score DESC, played_at DESC, then newest id first
+    static final Comparator<GameScore> ORDER = Comparator
+            .comparingInt(GameScore::getScore).reversed()
+            .thenComparing(GameScore::getPlayedAt, Comparator.reverseOrder())
+            .thenComparing(Comparator.comparingInt(GameScore::getScoreId).reversed());
+
+    private final Map<String, Board> boards = new ConcurrentHashMap<>();
+    private final long ttlMillis;
+
+    // ttlMillis <= 0 keeps boards until the process exits
+    public LeaderboardCache(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+    }
+
+    // Top entries, or null if the board isn't loaded yet or is due for a reload
+    public List<GameScore> get(String gameName, String gameMode, int limit) {
+        if (limit > CAPACITY) {
+            return null;
+        }
+        Board board = boards.get(key(gameName, gameMode));
+        if (board == null || !board.complete || board.isExpired(ttlMillis)) {
+            return null;
+        }
+        return board.top(limit);
+    }
+
+    // Whatever the board holds, even if expired or never fully loaded; null if
+    // there is no board. For when the database can't be reached in time.
+    public List<GameScore> getStale(String gameName, String gameMode, int limit) {
+        Board board = boards.get(key(gameName, gameMode));
+        return board != null ? board.top(limit) : null;
+    }
+
+    // Install rows loaded from the database, keeping anything added meanwhile
+    public void load(String gameName, String gameMode, Collection<GameScore> scores) {
+        Board fresh = new Board(true);
+        fresh.addAll(scores);
+        Board previous = boards.put(key(gameName, gameMode), fresh);
+        if (previous != null) {
+            fresh.addAll(previous.top(CAPACITY));
+        }
+    }
+
+    // Called for every committed score. A board that was never loaded only
+    // collects these until load() fills in the rest.
+    public void add(GameScore score) {
+        boards.computeIfAbsent(key(score.getGameName(), score.getGameMode()), k -> new Board(false)).add(score);
+    }
+
+    private static String key(String gameName, String gameMode) {
+        return gameName + '\u0000' + gameMode;
+    }
+
+    private static class Board {
+        private final TreeSet<GameScore> entries = new TreeSet<>(ORDER);
+        private final long loadedAt = System.currentTimeMillis();
+        private final boolean complete;
+
+        Board(boolean complete) {
+            this.complete = complete;
+        }
+
+        synchronized void add(GameScore score) {
+            entries.add(score);
+            if (entries.size() > CAPACITY) {
+                entries.pollLast();
+            }
+        }
+
+        synchronized void addAll(Collection<GameScore> scores) {
+            for (GameScore score : scores) {
+                add(score);
+            }
+        }
+
+        synchronized List<GameScore> top(int limit) {
+            List<GameScore> result = new ArrayList<>(Math.min(limit, entries.size()));
+            for (GameScore score : entries) {
+                if (result.size() >= limit) {
+                    break;
+                }
+                result.add(score);
+            }
+            return result;
+        }
+
+        boolean isExpired(long ttlMillis) {
+            return ttlMillis > 0 && System.currentTimeMillis() - loadedAt > ttlMillis;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package GameProject;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -102,20 +103,23 @@ public class MainMenu extends Application {
             String username = usernameField.getText();
             String password = passwordField.getText();
 
-            LoginResult result = authManager.login(username, password);
-
-            if (result.isSuccess()) {
-                messageLabel.setTextFill(Color.GREEN);
-                messageLabel.setText("✓ " + result.getMessage());
-                // Delay to show success message
-                javafx.animation.PauseTransition pause =
-                        new javafx.animation.PauseTransition(javafx.util.Duration.seconds(1));
-                pause.setOnFinished(ev -> showMainMenu());
-                pause.play();
-            } else {
-                messageLabel.setTextFill(Color.RED);
-                messageLabel.setText("✗ " + result.getMessage());
-            }
+            // The password check runs off the FX thread
+            loginBtn.setDisable(true);
+            authManager.loginAsync(username, password).thenAccept(result -> Platform.runLater(() -> {
+                loginBtn.setDisable(false);
+                if (result.isSuccess()) {
+                    messageLabel.setTextFill(Color.GREEN);
+                    messageLabel.setText("✓ " + result.getMessage());
+                    // Delay to show success message
+                    javafx.animation.PauseTransition pause =
+                            new javafx.animation.PauseTransition(javafx.util.Duration.seconds(1));
+                    pause.setOnFinished(ev -> showMainMenu());
+                    pause.play();
+                } else {
+                    messageLabel.setTextFill(Color.RED);
+                    messageLabel.setText("✗ " + result.getMessage());
+                }
+            }));
         });
 
         signupBtn.setOnAction(e -> showSignupDialog());
@@ -178,7 +182,9 @@ public class MainMenu extends Application {
 
         // Validate and register
         Button signupButton = (Button) dialog.getDialogPane().lookupButton(signupButtonType);
-        signupButton.setOnAction(e -> {
+        // Filter rather than handler, so the dialog stays open until the result is in
+        signupButton.addEventFilter(javafx.event.ActionEvent.ACTION, e -> {
+            e.consume();
             String username = usernameField.getText();
             String password = passwordField.getText();
             String confirmPassword = confirmPasswordField.getText();
@@ -188,31 +194,27 @@ public class MainMenu extends Application {
             if (!password.equals(confirmPassword)) {
                 messageLabel.setTextFill(Color.RED);
                 messageLabel.setText("✗ Passwords do not match!");
-                e.consume(); // Prevent dialog from closing
                 return;
             }
 
-            RegistrationResult result = authManager.register(username, password,
-                    email.isEmpty() ? null : email);
-
-            if (result.isSuccess()) {
-                messageLabel.setTextFill(Color.GREEN);
-                messageLabel.setText("✓ " + result.getMessage());
-
-                // Auto-login after successful registration
-                javafx.animation.PauseTransition pause =
-                        new javafx.animation.PauseTransition(javafx.util.Duration.seconds(1));
-                pause.setOnFinished(ev -> {
-                    authManager.login(username, password);
-                    dialog.close();
-                    showMainMenu();
-                });
-                pause.play();
-            } else {
-                messageLabel.setTextFill(Color.RED);
-                messageLabel.setText("✗ " + result.getMessage());
-                e.consume(); // Prevent dialog from closing
-            }
+            signupButton.setDisable(true);
+            authManager.registerAsync(username, password, email.isEmpty() ? null : email)
+                    .thenAccept(result -> Platform.runLater(() -> {
+                        if (result.isSuccess()) {
+                            messageLabel.setTextFill(Color.GREEN);
+                            messageLabel.setText("✓ " + result.getMessage());
+
+                            // Auto-login after successful registration
+                            authManager.loginAsync(username, password).thenAccept(login -> Platform.runLater(() -> {
+                                dialog.close();
+                                showMainMenu();
+                            }));
+                        } else {
+                            signupButton.setDisable(false);
+                            messageLabel.setTextFill(Color.RED);
+                            messageLabel.setText("✗ " + result.getMessage());
+                        }
+                    }));
         });
 
         dialog.showAndWait();
@@ -309,10 +311,42 @@ public class MainMenu extends Application {
             content.append("Games Played: ").append(stats.getGamesPlayed()).append("\n");
         }
 
+        appendRankings(content, user.getUsername());
+
         alert.setContentText(content.toString());
         alert.showAndWait();
     }
 
+    // Rank on each game's main leaderboard, with the players just above and below
+    private void appendRankings(StringBuilder content, String username) {
+        String[][] boards = {
+                {"TicTacToe", "vs_computer", "Tic Tac Toe"},
+                {"MemoryGame", "solo", "Memory"},
+                {"Pacman", "SOLO", "Pac-Man"}
+        };
+
+        StringBuilder rankings = new StringBuilder();
+        for (String[] board : boards) {
+            int rank = dbManager.getRank(username, board[0], board[1]);
+            if (rank == 0) {
+                continue;
+            }
+            rankings.append(String.format("%s: #%,d of %,d\n", board[2], rank,
+                    dbManager.getRankedPlayerCount(board[0], board[1])));
+            for (RankedPlayer nearby : dbManager.getAroundMe(username, board[0], board[1], 1)) {
+                rankings.append(String.format("   %s #%,d %s - %d\n",
+                        nearby.getPlayerName().equals(username) ? "▶" : " ",
+                        nearby.getRank(), nearby.getPlayerName(), nearby.getBestScore()));
+            }
+        }
+
+        if (rankings.length() > 0) {
+            content.append("\n🏆 RANKINGS\n");
+            content.append("─────────────────\n");
+            content.append(rankings);
+        }
+    }
+
     private void updateUserStatus() {
         if (authManager.isLoggedIn()) {
             userStatusLabel.setText("Welcome, " + authManager.getDisplayName() + "! 🎯");
@@ -388,12 +422,15 @@ public class MainMenu extends Application {
 
     @Override
     public void stop() {
-        if (authManager != null) {
-            authManager.closeConnection();
-        }
+        // Queued scores and last-login stamps are flushed through the shared
+        // connection pool, so it is closed only after both managers are done
         if (dbManager != null) {
             dbManager.closeConnection();
         }
+        if (authManager != null) {
+            authManager.closeConnection();
+        }
+        ConnectionPool.closeInstance();
     }
 
     public static void main(String[] args) {
@@ -0,0 +1,74 @@
+package GameProject;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+// A finished online match, reported by the game server that refereed it.
+// Only logged-in players (user id > 0) get a score row, and ratings change
+// only when both players are logged in.
+class MatchResult {
+    public static final int INITIAL_RATING = 1200;
+    private static final int RATING_K = 32;
+
+    final String gameName;
+    final String gameMode;
+    final String difficulty;
+    final Side first;
+    final Side second;
+    final int playTime;
+    final Timestamp playedAt = new Timestamp(System.currentTimeMillis());
+
+    MatchResult(String gameName, String gameMode, String difficulty, Side first, Side second, int playTime) {
+        this.gameName = gameName;
+        this.gameMode = gameMode;
+        this.difficulty = difficulty;
+        this.first = first;
+        this.second = second;
+        this.playTime = playTime;
+    }
+
+    // Score rows for the logged-in players
+    List<GameScore> toScores() {
+        List<GameScore> scores = new ArrayList<>(2);
+        for (Side side : new Side[]{first, second}) {
+            if (side.userId > 0) {
+                scores.add(new GameScore(0, gameName, side.playerName, side.score, gameMode, difficulty,
+                        playTime, side.won, playedAt));
+            }
+        }
+        return scores;
+    }
+
+    boolean isRated() {
+        return first.userId > 0 && second.userId > 0 && first.userId != second.userId;
+    }
+
+    // Elo update: {first's new rating, second's new rating}
+    int[] newRatings(int firstRating, int secondRating) {
+        double expected = 1 / (1 + Math.pow(10, (secondRating - firstRating) / 400.0));
+        double actual = first.won ? 1 : second.won ? 0 : 0.5;
+        int change = (int) Math.round(RATING_K * (actual - expected));
+        return new int[]{firstRating + change, secondRating - change};
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s: %s %d - %d %s", gameName, gameMode,
+                first.playerName, first.score, second.score, second.playerName);
+    }
+
+    static class Side {
+        final String playerName;
+        final int userId; // 0 for guests
+        final int score;
+        final boolean won;
+
+        Side(String playerName, int userId, int score, boolean won) {
+            this.playerName = playerName;
+            this.userId = userId;
+            this.score = score;
+            this.won = won;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package GameProject;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Write-behind queue for match results on the game servers.
+// Rooms hand finished matches to submit() and carry on; a background thread
+// stores queued matches (score rows, stats and ratings) in one transaction
+// once BATCH_SIZE are waiting or FLUSH_INTERVAL_MS has passed since the
+// first one arrived.
+class MatchResultWriter {
+    private static final int QUEUE_CAPACITY = 1000;
+    private static final int BATCH_SIZE = 50;
+    private static final long FLUSH_INTERVAL_MS = 250;
+
+    private final ScoreRepository repository;
+    private final BlockingQueue<MatchResult> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    public MatchResultWriter(ScoreRepository repository) {
+        this.repository = repository;
+        this.worker = new Thread(this::run, "match-result-writer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    // Writer for a game server process; flushed and closed on shutdown.
+    // Embedded storage is single-process, so give the server its own
+    // -Dgamehub.dataDir in that mode.
+    public static MatchResultWriter startForServer() {
+        ScoreRepository repository = StorageBackend.createScoreRepository();
+        MatchResultWriter writer = new MatchResultWriter(repository);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            writer.close();
+            repository.close();
+            ConnectionPool.closeInstance();
+        }, "match-result-shutdown"));
+        return writer;
+    }
+
+    public void submit(MatchResult match) {
+        if (!running || !queue.offer(match)) {
+            System.err.println("Match queue full - result not saved: " + match);
+        }
+    }
+
+    private void run() {
+        List<MatchResult> batch = new ArrayList<>(BATCH_SIZE);
+        while (running || !queue.isEmpty()) {
+            try {
+                MatchResult first = queue.poll(FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                // Collect more matches until the batch is full or the flush interval is up
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(FLUSH_INTERVAL_MS);
+                while (batch.size() < BATCH_SIZE) {
+                    queue.drainTo(batch, BATCH_SIZE - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= BATCH_SIZE || remaining <= 0) {
+                        break;
+                    }
+                    MatchResult next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                flush(batch);
+            } catch (InterruptedException e) {
+                flush(batch);
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<MatchResult> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            List<GameScore> saved = repository.saveMatches(batch);
+            System.out.println("Saved " + batch.size() + " match result(s), " + saved.size() + " score row(s)");
+        } catch (SQLException e) {
+            System.err.println("Error saving match results: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    // Stop accepting matches and wait for the queue to drain
+    public void close() {
+        running = false;
+        try {
+            worker.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -158,6 +158,7 @@ public class MemoryGame extends Application {
             socket = new Socket(host, port);
             out = new PrintWriter(socket.getOutputStream(), true);
             in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+            gameEnded = false;
 
             messageListener = new Thread(this::listenToServer);
             messageListener.setDaemon(true);
@@ -197,9 +198,10 @@ public class MemoryGame extends Application {
     }
 
     private void listenToServer() {
+        Socket connection = socket;
         try {
-            // Send player name immediately
-            out.println(playerName);
+            // Send session token (or guest name) immediately
+            out.println(authManager.getHandshakeLine(playerName));
 
             String message;
             while ((message = in.readLine()) != null) {
@@ -208,12 +210,33 @@ public class MemoryGame extends Application {
                 Platform.runLater(() -> handleOnlineMessage(finalMessage));
             }
         } catch (IOException e) {
-            Platform.runLater(() -> {
-                if (!gameEnded) {
-                    showError("Connection Lost", "Lost connection to server");
-                    showModeSelection();
-                }
-            });
+            // Same as the server hanging up
+        }
+        Platform.runLater(() -> {
+            // Unless we hung up ourselves, the game is over or an ERROR already explained it
+            if (socket == connection && !gameEnded) {
+                leaveOnlineGame("Connection Lost", "Lost connection to server");
+            }
+        });
+    }
+
+    // The server refused or dropped us; say why and go back to the menu
+    private void leaveOnlineGame(String title, String message) {
+        gameEnded = true;
+        closeConnection();
+        showError(title, message);
+        showModeSelection();
+    }
+
+    private void closeConnection() {
+        Socket connection = socket;
+        socket = null;
+        try {
+            if (connection != null && !connection.isClosed()) {
+                connection.close();
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
         }
     }
 
@@ -377,6 +400,11 @@ public class MemoryGame extends Application {
                 showError("Opponent Disconnected", "Your opponent left the game");
                 Platform.runLater(() -> showModeSelection());
                 break;
+
+            case "ERROR":
+                // Refused session or rate limit; the server drops or ignores us from here
+                leaveOnlineGame("Server Error", message.substring("ERROR:".length()));
+                break;
         }
     }
 
@@ -441,7 +469,22 @@ public class MemoryGame extends Application {
         populateLeaderboard(onlineList, onlineScores);
         onlineTab.setContent(onlineList);
 
-        tabPane.getTabs().addAll(soloTab, multiTab, onlineTab);
+        // Recent solo boards: today and the last seven days
+        Tab weekTab = new Tab("This Week");
+        weekTab.setClosable(false);
+        ListView<String> todayList = new ListView<>();
+        populateLeaderboard(todayList, dbManager.getDailyTopScores("MemoryGame", "solo", 10));
+        ListView<String> weekList = new ListView<>();
+        populateLeaderboard(weekList, dbManager.getWeeklyTopScores("MemoryGame", "solo", 10));
+        Label todayLabel = new Label("Today - Solo");
+        todayLabel.setFont(Font.font("System", FontWeight.BOLD, 14));
+        Label weekLabel = new Label("Last 7 Days - Solo");
+        weekLabel.setFont(Font.font("System", FontWeight.BOLD, 14));
+        VBox weekBox = new VBox(8, todayLabel, todayList, weekLabel, weekList);
+        weekBox.setPadding(new Insets(10));
+        weekTab.setContent(weekBox);
+
+        tabPane.getTabs().addAll(soloTab, multiTab, onlineTab, weekTab);
 
         Button closeBtn = new Button("Close");
         styleButton(closeBtn);
@@ -601,11 +644,7 @@ public class MemoryGame extends Application {
         });
         menuBtn.setOnAction(e -> {
             gameEnded = true;
-            try {
-                if (socket != null) socket.close();
-            } catch (Exception ex) {
-                ex.printStackTrace();
-            }
+            closeConnection();
             showModeSelection();
         });
 
@@ -854,10 +893,12 @@ public class MemoryGame extends Application {
                 alert.setHeaderText("🏆 Congratulations!");
                 int playTime = (int) ((System.currentTimeMillis() - gameStartTime) / 1000);
                 int finalScore = Math.max(0, 1000 - (totalMoves * 10) - playTime);
+                double percentile = dbManager.getScorePercentile("MemoryGame", "solo", "normal", finalScore);
                 alert.setContentText("You found all " + totalPairs + " pairs!\n\n" +
                         "Total Moves: " + totalMoves + "\n" +
                         "Time: " + playTime + " seconds\n" +
-                        "Score: " + finalScore + " points");
+                        "Score: " + finalScore + " points" +
+                        (percentile >= 0 ? String.format("\n\nBetter than %.0f%% of solo games", percentile) : ""));
             } else if (currentMode == GameMode.VS_PLAYER) {
                 if (player1Score > player2Score) {
                     alert.setHeaderText("🏆 Player 1 Wins!");
@@ -908,9 +949,8 @@ public class MemoryGame extends Application {
             playerWon = player1Score >= player2Score;
             finalScore = player1Score * 100;
         } else {
-            gameMode = "online";
-            playerWon = player1Score > player2Score;
-            finalScore = player1Score * 100;
+            // The server records online matches for both players
+            return;
         }
 
         dbManager.saveScore("MemoryGame", authManager.getDisplayName(), finalScore, gameMode, difficultyStr, playTime, playerWon);
@@ -965,13 +1005,7 @@ public class MemoryGame extends Application {
     @Override
     public void stop() {
         gameEnded = true;
-        try {
-            if (socket != null && !socket.isClosed()) {
-                socket.close();
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        closeConnection();
     }
 
     public static void main(String[] args) {
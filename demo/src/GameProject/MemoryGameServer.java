@@ -10,10 +10,18 @@ public class MemoryGameServer {
     private static List<ClientHandler> clients = new CopyOnWriteArrayList<>();
     private static List<GameRoom> gameRooms = new CopyOnWriteArrayList<>();
     private static Queue<ClientHandler> waitingPlayers = new ConcurrentLinkedQueue<>();
+    // Logged-in players' sessions, checked on every message
+    private static final SessionRegistry SESSIONS = new SessionRegistry();
+    // Per user (per address for guests)
+    private static final RateLimiter CONNECT_LIMIT = new RateLimiter(5, 5.0 / 60);
+    private static final RateLimiter MESSAGE_LIMIT = new RateLimiter(20, 10);
+    // Finished matches are stored here rather than by the clients
+    private static MatchResultWriter results;
 
     public static void main(String[] args) {
         System.out.println("Memory Game Server Starting...");
         System.out.println("Listening on port: " + PORT);
+        results = MatchResultWriter.startForServer();
 
         try (ServerSocket serverSocket = new ServerSocket(PORT)) {
             while (true) {
@@ -35,6 +43,9 @@ public class MemoryGameServer {
         private PrintWriter out;
         private BufferedReader in;
         private String playerName;
+        private int userId; // 0 for guests
+        private String sessionToken; // null for guests
+        private String rateKey;
         private GameRoom gameRoom;
 
         public ClientHandler(Socket socket) {
@@ -47,8 +58,28 @@ public class MemoryGameServer {
                 in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
                 out = new PrintWriter(socket.getOutputStream(), true);
 
-                // Wait for player name
-                playerName = in.readLine();
+                // First line: "AUTH:<session token>" from a logged-in client, or a guest name
+                String handshake = in.readLine();
+                SessionTokens.Claims claims = SessionTokens.fromHandshake(handshake);
+                if (claims == null) {
+                    out.println("ERROR:Invalid or expired session - please log in again");
+                    return;
+                }
+                rateKey = claims.isAuthenticated() ? claims.username : socket.getInetAddress().getHostAddress();
+                if (!CONNECT_LIMIT.tryAcquire(rateKey)) {
+                    out.println("ERROR:Too many connections - try again later");
+                    return;
+                }
+                playerName = claims.username;
+                userId = claims.userId;
+                if (claims.isAuthenticated()) {
+                    sessionToken = handshake.substring(SessionTokens.AUTH_PREFIX.length());
+                    if (SESSIONS.open(sessionToken, claims) == null) {
+                        // Went idle or was closed earlier; the signature alone doesn't bring it back
+                        out.println("ERROR:Session expired - please log in again");
+                        return;
+                    }
+                }
                 System.out.println("Player joined: " + playerName);
 
                 waitingPlayers.add(this);
@@ -58,6 +89,14 @@ public class MemoryGameServer {
 
                 String message;
                 while ((message = in.readLine()) != null) {
+                    if (sessionToken != null && SESSIONS.get(sessionToken) == null) {
+                        sendMessage("ERROR:Session expired - please log in again");
+                        break;
+                    }
+                    if (!MESSAGE_LIMIT.tryAcquire(rateKey)) {
+                        sendMessage("ERROR:Too many messages");
+                        continue;
+                    }
                     handleMessage(message);
                 }
             } catch (IOException e) {
@@ -116,6 +155,10 @@ public class MemoryGameServer {
             return playerName;
         }
 
+        public int getUserId() {
+            return userId;
+        }
+
         private void cleanup() {
             try {
                 waitingPlayers.remove(this);
@@ -136,7 +179,7 @@ public class MemoryGameServer {
         private List<String> cardDeck;
         private int player1Score = 0;
         private int player2Score = 0;
-        private Set<Integer> matchedIndices = new HashSet<>();
+        private CellBitSet matchedCards;
         private boolean gameActive = true;
         private long gameStartTime;
 
@@ -172,6 +215,7 @@ public class MemoryGameServer {
             }
 
             Collections.shuffle(cardDeck);
+            matchedCards = new CellBitSet(cardDeck.size());
         }
 
         public void start() {
@@ -188,7 +232,7 @@ public class MemoryGameServer {
         }
 
         public void handleCardClick(ClientHandler player, int index, String value) {
-            if (!gameActive || matchedIndices.contains(index)) {
+            if (!gameActive || index < 0 || index >= cardDeck.size() || matchedCards.contains(index)) {
                 return;
             }
 
@@ -245,15 +289,15 @@ public class MemoryGameServer {
                 if (isPlayer1) {
                     if (player1FirstValue.equals(player1SecondValue)) {
                         player1Score++;
-                        matchedIndices.add(player1FirstFlip);
-                        matchedIndices.add(player1SecondFlip);
+                        matchedCards.add(player1FirstFlip);
+                        matchedCards.add(player1SecondFlip);
 
                         player1.sendMessage("MATCH_SUCCESS:" + player1FirstFlip + ":" + player1SecondFlip);
                         player2.sendMessage("OPPONENT_MATCH:" + player1FirstFlip + ":" + player1SecondFlip);
 
                         broadcastScore();
 
-                        if (matchedIndices.size() == 20) {
+                        if (matchedCards.count() == cardDeck.size()) {
                             endGame();
                         }
                     } else {
@@ -269,15 +313,15 @@ public class MemoryGameServer {
                 } else {
                     if (player2FirstValue.equals(player2SecondValue)) {
                         player2Score++;
-                        matchedIndices.add(player2FirstFlip);
-                        matchedIndices.add(player2SecondFlip);
+                        matchedCards.add(player2FirstFlip);
+                        matchedCards.add(player2SecondFlip);
 
                         player2.sendMessage("MATCH_SUCCESS:" + player2FirstFlip + ":" + player2SecondFlip);
                         player1.sendMessage("OPPONENT_MATCH:" + player2FirstFlip + ":" + player2SecondFlip);
 
                         broadcastScore();
 
-                        if (matchedIndices.size() == 20) {
+                        if (matchedCards.count() == cardDeck.size()) {
                             endGame();
                         }
                     } else {
@@ -322,9 +366,23 @@ public class MemoryGameServer {
             }
 
             System.out.println("Game finished in " + gameDuration + "s");
+            recordResult((int) gameDuration);
             gameRooms.remove(this);
         }
 
+        // 100 points per pair, as the client scored it
+        private void recordResult(int playTime) {
+            if (results == null) {
+                return;
+            }
+            results.submit(new MatchResult("MemoryGame", "online", "normal",
+                    new MatchResult.Side(player1.getPlayerName(), player1.getUserId(), player1Score * 100,
+                            player1Score > player2Score),
+                    new MatchResult.Side(player2.getPlayerName(), player2.getUserId(), player2Score * 100,
+                            player2Score > player1Score),
+                    playTime));
+        }
+
         public void broadcastChat(String message) {
             player1.sendMessage("CHAT:" + message);
             player2.sendMessage("CHAT:" + message);
@@ -0,0 +1,429 @@
+package GameProject;
+
+import java.sql.*;
+import java.util.*;
+import java.util.function.Consumer;
+
+// game_scores, player_game_stats and player_ratings in the shared MySQL
+// database. Every table keys players on users.user_id and games, modes and
+// difficulties on the ScoreDimensions ids; names are joined in for display.
+class MySqlScoreRepository implements ScoreRepository {
+    private static final String INSERT_SQL =
+            "INSERT INTO game_scores (user_id, game_id, mode_id, difficulty_id, score, play_time, won, played_at, " +
+                    "event_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    // Rows filter on the ids; the names come from the dictionary tables by primary key
+    private static final String DIMENSION_JOINS =
+            "JOIN games g ON g.game_id = s.game_id " +
+                    "LEFT JOIN game_modes m ON m.mode_id = s.mode_id " +
+                    "LEFT JOIN difficulties d ON d.difficulty_id = s.difficulty_id ";
+    private static final String SCORE_SELECT =
+            "SELECT s.score_id, g.game_name, u.username AS player_name, s.score, m.game_mode, d.difficulty, " +
+                    "s.play_time, s.won, s.played_at FROM game_scores s " + DIMENSION_JOINS +
+                    "JOIN users u ON u.user_id = s.user_id ";
+    private static final String HISTORY_SELECT =
+            "SELECT s.score_id, g.game_name, s.score, m.game_mode, d.difficulty, s.play_time, s.won, s.played_at " +
+                    "FROM game_scores s " + DIMENSION_JOINS;
+    private static final int HISTORY_FETCH_SIZE = 200;
+    private static final String SELECT_RATING_SQL =
+            "SELECT rating FROM player_ratings WHERE user_id = ? AND game_id = ? FOR UPDATE";
+    private static final String UPSERT_RATING_SQL =
+            "INSERT INTO player_ratings (user_id, game_id, rating, games_rated) VALUES (?, ?, ?, 1) " +
+                    "ON DUPLICATE KEY UPDATE rating = VALUES(rating), games_rated = games_rated + 1";
+
+    private final ConnectionPool dataSource;
+    private final PlayerStatsRollup statsRollup;
+    private final ScoreDimensions dimensions;
+
+    public MySqlScoreRepository(ConnectionPool dataSource) {
+        this.dataSource = dataSource;
+        SchemaMigrations.migrate(dataSource);
+        this.dimensions = new ScoreDimensions(dataSource);
+        this.statsRollup = new PlayerStatsRollup(dataSource, dimensions);
+    }
+
+    @Override
+    public List<GameScore> saveScores(List<GameScore> scores) throws SQLException {
+        dimensions.prepare(scores);
+        try (Connection conn = dataSource.getConnection("saveScores")) {
+            conn.setAutoCommit(false);
+            List<GameScore> saved = insertScores(conn, scores, null);
+
+            // Stats rollups go in the same transaction as the score rows
+            statsRollup.addToTransaction(conn, saved);
+            statsRollup.commit(conn, saved);
+            return saved;
+        }
+    }
+
+    // Both players' rows, their stats and any rating changes commit together.
+    // Ratings are read FOR UPDATE so two servers rating the same player queue
+    // up instead of overwriting each other.
+    @Override
+    public List<GameScore> saveMatches(List<MatchResult> matches) throws SQLException {
+        List<GameScore> scores = new ArrayList<>();
+        for (MatchResult match : matches) {
+            scores.addAll(match.toScores());
+        }
+        dimensions.prepare(scores);
+
+        try (Connection conn = dataSource.getConnection("saveMatches")) {
+            conn.setAutoCommit(false);
+            List<GameScore> saved = insertScores(conn, scores, null);
+            statsRollup.addToTransaction(conn, saved);
+
+            try (PreparedStatement select = conn.prepareStatement(SELECT_RATING_SQL);
+                 PreparedStatement upsert = conn.prepareStatement(UPSERT_RATING_SQL)) {
+                for (MatchResult match : matches) {
+                    Integer gameId = dimensions.cached(ScoreDimensions.Kind.GAME, match.gameName);
+                    if (!match.isRated() || gameId == null) {
+                        continue;
+                    }
+                    int[] ratings = match.newRatings(
+                            readRating(select, match.first.userId, gameId),
+                            readRating(select, match.second.userId, gameId));
+                    writeRating(upsert, match.first.userId, gameId, ratings[0]);
+                    writeRating(upsert, match.second.userId, gameId, ratings[1]);
+                }
+            }
+
+            statsRollup.commit(conn, saved);
+            return saved;
+        }
+    }
+
+    // Keys already in game_scores are dropped before the insert; the unique
+    // index on event_id still rejects the batch if another writer races us
+    @Override
+    public List<GameScore> saveScoresOnce(List<GameScore> scores, List<String> eventIds) throws SQLException {
+        // The database may have been down when this repository was created
+        SchemaMigrations.migrate(dataSource);
+        dimensions.prepare(scores);
+
+        try (Connection conn = dataSource.getConnection("saveScoresOnce")) {
+            conn.setAutoCommit(false);
+            Set<String> stored = findStoredEvents(conn, eventIds);
+
+            List<GameScore> fresh = new ArrayList<>(scores.size());
+            List<String> freshIds = new ArrayList<>(scores.size());
+            for (int i = 0; i < scores.size(); i++) {
+                if (!stored.contains(eventIds.get(i))) {
+                    fresh.add(scores.get(i));
+                    freshIds.add(eventIds.get(i));
+                }
+            }
+
+            List<GameScore> saved = insertScores(conn, fresh, freshIds);
+            statsRollup.addToTransaction(conn, saved);
+            statsRollup.commit(conn, saved);
+            return saved;
+        }
+    }
+
+    private static Set<String> findStoredEvents(Connection conn, List<String> eventIds) throws SQLException {
+        Set<String> stored = new HashSet<>();
+        if (eventIds.isEmpty()) {
+            return stored;
+        }
+
+        String sql = "SELECT event_id FROM game_scores WHERE event_id IN (" +
+                String.join(", ", Collections.nCopies(eventIds.size(), "?")) + ")";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < eventIds.size(); i++) {
+                pstmt.setString(i + 1, eventIds.get(i));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    stored.add(rs.getString("event_id"));
+                }
+            }
+        }
+        return stored;
+    }
+
+    // eventIds may be null for rows without an idempotency key. Dimension ids
+    // must already be cached (dimensions.prepare) so nothing here leaves the transaction.
+    // A score whose player has no account is left out, since every row needs a user_id.
+    private List<GameScore> insertScores(Connection conn, List<GameScore> allScores,
+                                                List<String> allEventIds) throws SQLException {
+        List<GameScore> scores = new ArrayList<>(allScores.size());
+        List<String> eventIds = allEventIds != null ? new ArrayList<>(allScores.size()) : null;
+        for (int i = 0; i < allScores.size(); i++) {
+            GameScore score = allScores.get(i);
+            if (dimensions.cached(ScoreDimensions.Kind.PLAYER, score.getPlayerName()) == null
+                    || dimensions.cached(ScoreDimensions.Kind.GAME, score.getGameName()) == null) {
+                System.err.println("No account or game for " + score + " - score not saved");
+                continue;
+            }
+            scores.add(score);
+            if (eventIds != null) {
+                eventIds.add(allEventIds.get(i));
+            }
+        }
+
+        List<GameScore> saved = new ArrayList<>(scores.size());
+        if (scores.isEmpty()) {
+            return saved;
+        }
+
+        try (PreparedStatement pstmt = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            for (int i = 0; i < scores.size(); i++) {
+                GameScore score = scores.get(i);
+                pstmt.setInt(1, dimensions.cached(ScoreDimensions.Kind.PLAYER, score.getPlayerName()));
+                pstmt.setInt(2, dimensions.cached(ScoreDimensions.Kind.GAME, score.getGameName()));
+                pstmt.setObject(3, dimensions.cached(ScoreDimensions.Kind.MODE, score.getGameMode()), Types.SMALLINT);
+                pstmt.setObject(4, dimensions.cached(ScoreDimensions.Kind.DIFFICULTY, score.getDifficulty()),
+                        Types.SMALLINT);
+                pstmt.setInt(5, score.getScore());
+                pstmt.setInt(6, score.getPlayTime());
+                pstmt.setBoolean(7, score.isWon());
+                pstmt.setTimestamp(8, score.getPlayedAt());
+                pstmt.setString(9, eventIds != null ? eventIds.get(i) : null);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                for (GameScore score : scores) {
+                    saved.add(score.withScoreId(keys.next() ? keys.getInt(1) : 0));
+                }
+            }
+        }
+        return saved;
+    }
+
+    private static int readRating(PreparedStatement select, int userId, int gameId) throws SQLException {
+        select.setInt(1, userId);
+        select.setInt(2, gameId);
+        try (ResultSet rs = select.executeQuery()) {
+            return rs.next() ? rs.getInt("rating") : MatchResult.INITIAL_RATING;
+        }
+    }
+
+    private static void writeRating(PreparedStatement upsert, int userId, int gameId,
+                                    int rating) throws SQLException {
+        upsert.setInt(1, userId);
+        upsert.setInt(2, gameId);
+        upsert.setInt(3, rating);
+        upsert.executeUpdate();
+    }
+
+    @Override
+    public List<GameScore> findTopScores(String gameName, String gameMode, int limit) throws SQLException {
+        List<GameScore> scores = new ArrayList<>();
+        Integer gameId = dimensions.find(ScoreDimensions.Kind.GAME, gameName);
+        Integer modeId = dimensions.find(ScoreDimensions.Kind.MODE, gameMode);
+        if (gameId == null || modeId == null) {
+            return scores;
+        }
+        String sql = SCORE_SELECT + "WHERE s.game_id = ? AND s.mode_id = ? " +
+                "ORDER BY s.score DESC, s.played_at DESC LIMIT ?";
+
+        try (Connection conn = dataSource.getConnection("getTopScores");
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, gameId);
+            pstmt.setInt(2, modeId);
+            pstmt.setInt(3, limit);
+
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                scores.add(readScore(rs));
+            }
+        }
+        return scores;
+    }
+
+    @Override
+    public List<GameScore> findTopScoresBetween(String gameName, String gameMode, Timestamp from, Timestamp to,
+                                                int limit) throws SQLException {
+        List<GameScore> scores = new ArrayList<>();
+        Integer gameId = dimensions.find(ScoreDimensions.Kind.GAME, gameName);
+        Integer modeId = dimensions.find(ScoreDimensions.Kind.MODE, gameMode);
+        if (gameId == null || modeId == null) {
+            return scores;
+        }
+        String sql = SCORE_SELECT + "WHERE s.game_id = ? AND s.mode_id = ? " +
+                "AND s.played_at >= ? AND s.played_at < ? " +
+                "ORDER BY s.score DESC, s.played_at DESC LIMIT ?";
+
+        try (Connection conn = dataSource.getConnection("getWindowedTopScores");
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, gameId);
+            pstmt.setInt(2, modeId);
+            pstmt.setTimestamp(3, from);
+            pstmt.setTimestamp(4, to);
+            pstmt.setInt(5, limit);
+
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                scores.add(readScore(rs));
+            }
+        }
+        return scores;
+    }
+
+    // Runs once per board when the rank index loads, not per lookup
+    @Override
+    public Map<String, Integer> findBestScores(String gameName, String gameMode) throws SQLException {
+        Map<String, Integer> bestScores = new HashMap<>();
+        Integer gameId = dimensions.find(ScoreDimensions.Kind.GAME, gameName);
+        Integer modeId = dimensions.find(ScoreDimensions.Kind.MODE, gameMode);
+        if (gameId == null || modeId == null) {
+            return bestScores;
+        }
+        String sql = "SELECT u.username, b.best_score FROM (" +
+                "SELECT user_id, MAX(score) AS best_score FROM game_scores " +
+                "WHERE game_id = ? AND mode_id = ? GROUP BY user_id) b " +
+                "JOIN users u ON u.user_id = b.user_id";
+
+        try (Connection conn = dataSource.getConnection("loadRanks");
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, gameId);
+            pstmt.setInt(2, modeId);
+
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                bestScores.put(rs.getString("username"), rs.getInt("best_score"));
+            }
+        }
+        return bestScores;
+    }
+
+    @Override
+    public void countScores(ScoreCounter counter) throws SQLException {
+        String sql = "SELECT g.game_name, m.game_mode, d.difficulty, s.score, s.row_count FROM (" +
+                "SELECT game_id, mode_id, difficulty_id, score, COUNT(*) AS row_count FROM game_scores " +
+                "GROUP BY game_id, mode_id, difficulty_id, score) s " + DIMENSION_JOINS;
+
+        try (Connection conn = dataSource.getConnection("countScores");
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                counter.add(rs.getString("game_name"), rs.getString("game_mode"), rs.getString("difficulty"),
+                        rs.getInt("score"), rs.getLong("row_count"));
+            }
+        }
+    }
+
+    @Override
+    public List<String[]> findLeaderboards() throws SQLException {
+        List<String[]> boards = new ArrayList<>();
+        String sql = "SELECT g.game_name, m.game_mode FROM (" +
+                "SELECT DISTINCT game_id, mode_id FROM game_scores WHERE mode_id IS NOT NULL) s " +
+                "JOIN games g ON g.game_id = s.game_id JOIN game_modes m ON m.mode_id = s.mode_id";
+
+        try (Connection conn = dataSource.getConnection("findLeaderboards");
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                boards.add(new String[]{rs.getString("game_name"), rs.getString("game_mode")});
+            }
+        }
+        return boards;
+    }
+
+    @Override
+    public PlayerStats findPlayerStats(String playerName, String gameName) throws SQLException {
+        return statsRollup.getPlayerStats(playerName, gameName);
+    }
+
+    @Override
+    public List<PlayerStats> findAllPlayerStats(String playerName) throws SQLException {
+        Integer userId = dimensions.find(ScoreDimensions.Kind.PLAYER, playerName);
+        return userId != null ? statsRollup.getAccountStats(userId, playerName) : new ArrayList<>();
+    }
+
+    @Override
+    public List<PlayerStats> findAccountStats(int userId, String playerName) throws SQLException {
+        return statsRollup.getAccountStats(userId, playerName);
+    }
+
+    @Override
+    public List<GameScore> findPlayerScoresPage(String playerName, GameScore after, int pageSize) throws SQLException {
+        List<GameScore> scores = new ArrayList<>();
+        Integer userId = dimensions.find(ScoreDimensions.Kind.PLAYER, playerName);
+        if (userId == null) {
+            return scores;
+        }
+        String sql = HISTORY_SELECT + "WHERE s.user_id = ? " +
+                (after != null ? "AND (s.played_at < ? OR (s.played_at = ? AND s.score_id < ?)) " : "") +
+                "ORDER BY s.played_at DESC, s.score_id DESC LIMIT ?";
+
+        try (Connection conn = dataSource.getConnection("getPlayerScoresPage");
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int index = 1;
+            pstmt.setInt(index++, userId);
+            if (after != null) {
+                pstmt.setTimestamp(index++, after.getPlayedAt());
+                pstmt.setTimestamp(index++, after.getPlayedAt());
+                pstmt.setInt(index++, after.getScoreId());
+            }
+            pstmt.setInt(index, pageSize);
+
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                scores.add(readHistoryRow(rs, playerName));
+            }
+        }
+        return scores;
+    }
+
+    // Rows arrive in HISTORY_FETCH_SIZE chunks through a server-side cursor
+    @Override
+    public int streamPlayerScores(String playerName, Consumer<GameScore> action) throws SQLException {
+        Integer userId = dimensions.find(ScoreDimensions.Kind.PLAYER, playerName);
+        if (userId == null) {
+            return 0;
+        }
+        String sql = HISTORY_SELECT + "WHERE s.user_id = ? ORDER BY s.played_at DESC, s.score_id DESC";
+        int count = 0;
+
+        try (Connection conn = dataSource.getConnection("streamPlayerScores");
+             PreparedStatement pstmt = conn.prepareStatement(sql,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            pstmt.setFetchSize(HISTORY_FETCH_SIZE);
+            pstmt.setInt(1, userId);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    action.accept(readHistoryRow(rs, playerName));
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    // The pool is shared with the other repositories; ConnectionPool.closeInstance closes it
+    @Override
+    public void close() {
+    }
+
+    private static GameScore readScore(ResultSet rs) throws SQLException {
+        return new GameScore(
+                rs.getInt("score_id"),
+                rs.getString("game_name"),
+                rs.getString("player_name"),
+                rs.getInt("score"),
+                rs.getString("game_mode"),
+                rs.getString("difficulty"),
+                rs.getInt("play_time"),
+                rs.getBoolean("won"),
+                rs.getTimestamp("played_at")
+        );
+    }
+
+    // The player is already known from the WHERE clause, so history queries skip the users join
+    private static GameScore readHistoryRow(ResultSet rs, String playerName) throws SQLException {
+        return new GameScore(
+                rs.getInt("score_id"),
+                rs.getString("game_name"),
+                playerName,
+                rs.getInt("score"),
+                rs.getString("game_mode"),
+                rs.getString("difficulty"),
+                rs.getInt("play_time"),
+                rs.getBoolean("won"),
+                rs.getTimestamp("played_at")
+        );
+    }
+}
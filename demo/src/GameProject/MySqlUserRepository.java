@@ -0,0 +1,101 @@
+package GameProject;
+
+import java.sql.*;
+import java.util.Map;
+
+// users table in the shared MySQL database
+class MySqlUserRepository implements UserRepository {
+    private final ConnectionPool dataSource;
+
+    public MySqlUserRepository(ConnectionPool dataSource) {
+        this.dataSource = dataSource;
+        SchemaMigrations.migrate(dataSource);
+    }
+
+    // The UNIQUE index on username rejects duplicates, so there's no
+    // separate existence check to race with
+    @Override
+    public void createUser(String username, String passwordHash, String email) throws SQLException {
+        String sql = "INSERT INTO users (username, password_hash, email) VALUES (?, ?, ?)";
+
+        try (Connection conn = dataSource.getConnection("register");
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, username);
+            pstmt.setString(2, passwordHash);
+            pstmt.setString(3, email);
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            // ER_DUP_ENTRY, in case the driver doesn't map it to the subclass
+            if (e.getErrorCode() == 1062 && !(e instanceof SQLIntegrityConstraintViolationException)) {
+                throw new SQLIntegrityConstraintViolationException(e.getMessage(), e.getSQLState(), 1062, e);
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public Credentials findCredentials(String username) throws SQLException {
+        String sql = "SELECT user_id, username, email, created_at, password_hash FROM users WHERE username = ?";
+
+        try (Connection conn = dataSource.getConnection("login");
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, username);
+
+            ResultSet rs = pstmt.executeQuery();
+            if (rs.next()) {
+                User user = new User(
+                        rs.getInt("user_id"),
+                        rs.getString("username"),
+                        rs.getString("email"),
+                        rs.getTimestamp("created_at")
+                );
+                return new Credentials(user, rs.getString("password_hash"));
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void updatePasswordHash(int userId, String passwordHash) throws SQLException {
+        String sql = "UPDATE users SET password_hash = ? WHERE user_id = ?";
+
+        try (Connection conn = dataSource.getConnection("upgradeHash");
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, passwordHash);
+            pstmt.setInt(2, userId);
+            pstmt.executeUpdate();
+        }
+    }
+
+    @Override
+    public void updateLastLogins(Map<Integer, Timestamp> lastLogins) throws SQLException {
+        String sql = "UPDATE users SET last_login = ? WHERE user_id = ?";
+
+        try (Connection conn = dataSource.getConnection("updateLastLogins");
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (Map.Entry<Integer, Timestamp> entry : lastLogins.entrySet()) {
+                pstmt.setTimestamp(1, entry.getValue());
+                pstmt.setInt(2, entry.getKey());
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    @Override
+    public String findUsername(int userId) throws SQLException {
+        String sql = "SELECT username FROM users WHERE user_id = ?";
+
+        try (Connection conn = dataSource.getConnection("getUserStats");
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, userId);
+            ResultSet rs = pstmt.executeQuery();
+            return rs.next() ? rs.getString("username") : null;
+        }
+    }
+
+    // The pool is shared with the other repositories; ConnectionPool.closeInstance closes it
+    @Override
+    public void close() {
+    }
+}
@@ -2,6 +2,7 @@ package GameProject;
 
 import javafx.animation.AnimationTimer;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -15,6 +16,9 @@ import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 import javafx.stage.Stage;
 
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
 import java.util.*;
 
 public class PacmanGame extends Application {
@@ -22,8 +26,8 @@ public class PacmanGame extends Application {
     private enum GameMode { SOLO, VS_COMPUTER, MULTIPLAYER, ONLINE }
 
     private static final int TILE_SIZE = 25;
-    private static final int GRID_WIDTH = 24;
-    private static final int GRID_HEIGHT = 20;
+    private static final int GRID_WIDTH = PacmanMaze.WIDTH;
+    private static final int GRID_HEIGHT = PacmanMaze.HEIGHT;
 
     private Canvas canvas;
     private GraphicsContext gc;
@@ -52,6 +56,7 @@ public class PacmanGame extends Application {
     private Label livesLabel;
     private Label statusLabel;
 
+    private PacmanMaze maze;
     private boolean[][] walls;
     private boolean[][] dots;
     private List<Ghost> ghosts;
@@ -65,11 +70,48 @@ public class PacmanGame extends Application {
     private boolean gameRunning = false;
     private boolean gameOver = false;
 
+    // Online multiplayer
+    private Socket socket;
+    private PrintWriter out;
+    private BufferedReader in;
+    private int myPlayerNumber;
+    private String opponentName;
+    private boolean lockstep;
+
+    // Lockstep: both clients run the same simulation on a fixed tick and only trade inputs.
+    // Our input for tick t is sent while simulating t - INPUT_DELAY so it arrives in time.
+    private static final long LOCKSTEP_TICK = 150_000_000;
+    private static final int INPUT_DELAY = 2;
+    private static final int HASH_INTERVAL = 20;
+    private int currentTick;
+    private int localDirection;
+    private Map<Integer, Integer> myInputs = new HashMap<>();
+    private Map<Integer, Integer> opponentInputs = new HashMap<>();
+
+    // Snapshot mode: our pacman is predicted locally and reconciled against the server;
+    // the opponent and ghosts are drawn INTERPOLATION_DELAY behind the newest snapshot.
+    private static final long INTERPOLATION_DELAY = 250_000_000;
+    private static final int MAX_SNAPSHOTS = 8;
+    private List<Snapshot> snapshots = new ArrayList<>();
+    private Deque<int[]> pendingMoves = new ArrayDeque<>(); // {seq, x, y}
+    private int nextMoveSeq;
+    private final DatagramLink.TickFilter snapshotTicks = new DatagramLink.TickFilter();
+    // --udpLoss=0.2 on the command line drops about 20% of our outgoing datagrams
+    private DatagramLink.LossSimulator udpLoss = DatagramLink.LossSimulator.none();
+    private volatile DatagramLink udpLink;
+    private static final long UDP_ALIVE_MILLIS = 1000;
+    private double opponentDrawX;
+    private double opponentDrawY;
+
     @Override
     public void start(Stage stage) {
         this.primaryStage = stage;
         this.dbManager = DatabaseManager.getInstance();
         this.authManager = UserAuthManager.getInstance();
+        String lossRate = getParameters().getNamed().get("udpLoss");
+        if (lossRate != null) {
+            udpLoss = DatagramLink.LossSimulator.random(Double.parseDouble(lossRate));
+        }
 
         // Go directly to mode selection - no name dialog
         showModeSelection();
@@ -101,16 +143,18 @@ public class PacmanGame extends Application {
         Button soloBtn = createMenuButton("🎯 Solo Mode", "Play alone vs ghosts");
         Button vsComputerBtn = createMenuButton("🤖 VS Computer", "Race against AI Pacman");
         Button multiplayerBtn = createMenuButton("👥 Multiplayer", "2 Players on same keyboard");
+        Button onlineBtn = createMenuButton("🌐 Online Multiplayer", "Play online");
         Button leaderboardBtn = createMenuButton("🏆 Leaderboard", "View top scores");
         Button exitBtn = createMenuButton("← Exit", "Close game");
 
         soloBtn.setOnAction(e -> startGame(GameMode.SOLO));
         vsComputerBtn.setOnAction(e -> startGame(GameMode.VS_COMPUTER));
         multiplayerBtn.setOnAction(e -> startGame(GameMode.MULTIPLAYER));
+        onlineBtn.setOnAction(e -> showOnlineOptions());
         leaderboardBtn.setOnAction(e -> showLeaderboard());
         exitBtn.setOnAction(e -> primaryStage.close());
 
-        buttonBox.getChildren().addAll(soloBtn, vsComputerBtn, multiplayerBtn, leaderboardBtn, exitBtn);
+        buttonBox.getChildren().addAll(soloBtn, vsComputerBtn, multiplayerBtn, onlineBtn, leaderboardBtn, exitBtn);
         root.getChildren().addAll(title, subtitle, playerLabel, buttonBox);
 
         Scene scene = new Scene(root, 700, 800);
@@ -119,6 +163,399 @@ public class PacmanGame extends Application {
         primaryStage.show();
     }
 
+    private void showOnlineOptions() {
+        Dialog<String[]> dialog = new Dialog<>();
+        dialog.setTitle("Connect to Server");
+        dialog.setHeaderText("Enter Server Details");
+
+        ButtonType connectBtn = new ButtonType("Connect", ButtonBar.ButtonData.OK_DONE);
+        dialog.getDialogPane().getButtonTypes().addAll(connectBtn, ButtonType.CANCEL);
+
+        GridPane gridPane = new GridPane();
+        gridPane.setHgap(10);
+        gridPane.setVgap(10);
+        gridPane.setPadding(new Insets(20));
+
+        TextField hostField = new TextField("localhost");
+        TextField portField = new TextField("5558");
+
+        gridPane.add(new Label("Host:"), 0, 0);
+        gridPane.add(hostField, 1, 0);
+        gridPane.add(new Label("Port:"), 0, 1);
+        gridPane.add(portField, 1, 1);
+
+        dialog.getDialogPane().setContent(gridPane);
+        Platform.runLater(hostField::requestFocus);
+
+        dialog.setResultConverter(btn -> {
+            if (btn == connectBtn) {
+                return new String[]{hostField.getText(), portField.getText()};
+            }
+            return null;
+        });
+
+        Optional<String[]> result = dialog.showAndWait();
+        result.ifPresent(data -> connectToServer(authManager.getDisplayName(), data[0], Integer.parseInt(data[1])));
+    }
+
+    private void connectToServer(String playerName, String host, int port) {
+        try {
+            socket = new Socket(host, port);
+            out = new PrintWriter(socket.getOutputStream(), true);
+            in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+            gameOver = false;
+
+            out.println(authManager.getHandshakeLine(playerName));
+            Thread listener = new Thread(this::listenToServer);
+            listener.setDaemon(true);
+            listener.start();
+            showWaitingScreen();
+        } catch (IOException e) {
+            showAlert("Connection Failed", "Could not connect to server: " + e.getMessage());
+        }
+    }
+
+    private void showWaitingScreen() {
+        VBox root = new VBox(30);
+        root.setAlignment(Pos.CENTER);
+        root.setPadding(new Insets(40));
+        root.setStyle("-fx-background: linear-gradient(to bottom, #1a1a2e 0%, #16213e 100%);");
+
+        Label title = new Label("Waiting for Opponent...");
+        title.setFont(Font.font("System", FontWeight.BOLD, 32));
+        title.setTextFill(Color.YELLOW);
+
+        ProgressIndicator progress = new ProgressIndicator();
+
+        root.getChildren().addAll(title, progress);
+
+        Scene scene = new Scene(root, 700, 400);
+        primaryStage.setScene(scene);
+        primaryStage.setTitle("Pacman - Waiting for Opponent");
+    }
+
+    private void listenToServer() {
+        Socket connection = socket;
+        try {
+            String message;
+            while ((message = in.readLine()) != null) {
+                String finalMessage = message;
+                Platform.runLater(() -> handleServerMessage(finalMessage));
+            }
+        } catch (IOException e) {
+            // Same as the server hanging up
+        }
+        Platform.runLater(() -> {
+            // Unless we hung up ourselves, the game is over or an ERROR already explained it
+            if (socket == connection && !gameOver) {
+                leaveOnlineGame("Connection Lost", "Lost connection to server");
+            }
+        });
+    }
+
+    // The server refused or dropped us; say why and go back to the menu
+    private void leaveOnlineGame(String title, String message) {
+        stopOnlineGame(message);
+        closeConnection();
+        showAlert(title, message);
+        showModeSelection();
+    }
+
+    private void handleServerMessage(String message) {
+        String[] parts = message.split(":");
+        String command = parts[0];
+
+        switch (command) {
+            case "START":
+                // START:playerNumber:opponent:seed:walls:mode
+                myPlayerNumber = Integer.parseInt(parts[1]);
+                opponentName = parts[2];
+                maze = PacmanMaze.decode(Long.parseLong(parts[3]), parts[4]);
+                lockstep = parts.length > 5 && parts[5].equals("LOCKSTEP");
+                startGame(GameMode.ONLINE);
+                break;
+            case "UDP":
+                // UDP:port:token - server offers snapshots over UDP
+                startUdp(Integer.parseInt(parts[1]), parts[2]);
+                break;
+            case "SNAPSHOT":
+                // SNAPSHOT:tick:ackSeq:p1x:p1y:p1dir:p2x:p2y:p2dir:ghosts
+                handleSnapshot(parts);
+                break;
+            case "MOVE_REJECTED":
+                // MOVE_REJECTED:x:y:dir:seq - server kept us where we were
+                pendingMoves.clear();
+                setMyPosition(Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+                break;
+            case "DOT_REMOVED":
+                dots[Integer.parseInt(parts[2])][Integer.parseInt(parts[1])] = false;
+                break;
+            case "SCORE_UPDATE":
+                score1 = Integer.parseInt(parts[1]);
+                score2 = Integer.parseInt(parts[2]);
+                updateLabels();
+                break;
+            case "HIT":
+                // HIT:playerNumber:livesLeft
+                int hitPlayer = Integer.parseInt(parts[1]);
+                int livesLeft = Integer.parseInt(parts[2]);
+                if (hitPlayer == 1) {
+                    lives1 = livesLeft;
+                } else {
+                    lives2 = livesLeft;
+                }
+                if (hitPlayer == myPlayerNumber) {
+                    pendingMoves.clear();
+                    setMyPosition(hitPlayer == 1 ? 1 : GRID_WIDTH - 2, hitPlayer == 1 ? 1 : GRID_HEIGHT - 2);
+                }
+                updateLabels();
+                break;
+            case "OPPONENT_INPUT":
+                // OPPONENT_INPUT:tick:direction
+                opponentInputs.put(Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+                break;
+            case "DESYNC":
+                stopOnlineGame("⚠️ Game out of sync at tick " + parts[1]);
+                break;
+            case "GAME_END":
+                // GAME_END:winnerNumber:score1:score2 (winner 0 is a tie)
+                finishOnlineGame(Integer.parseInt(parts[1]), Integer.parseInt(parts[2]), Integer.parseInt(parts[3]));
+                break;
+            case "OPPONENT_DISCONNECTED":
+                if (!gameOver) {
+                    stopOnlineGame("Your opponent disconnected");
+                }
+                break;
+            case "ERROR":
+                // Refused or expired session, or too many connections
+                leaveOnlineGame("Server Error", message.substring("ERROR:".length()));
+                break;
+        }
+    }
+
+    private void startUdp(int port, String token) {
+        InetSocketAddress server = new InetSocketAddress(socket.getInetAddress(), port);
+        Thread udpThread = new Thread(() -> runUdp(server, token));
+        udpThread.setDaemon(true);
+        udpThread.start();
+    }
+
+    private void runUdp(InetSocketAddress server, String token) {
+        try (DatagramLink link = DatagramLink.connect(server, udpLoss)) {
+            udpLink = link;
+
+            // A few HELLOs; if none is answered UDP is blocked and we stay on TCP
+            boolean confirmed = false;
+            for (int attempt = 0; attempt < 5 && !confirmed; attempt++) {
+                link.send("HELLO:" + token);
+                DatagramLink.Packet reply = link.receive(400);
+                confirmed = reply != null && reply.message.equals("UDP_OK");
+            }
+            if (!confirmed) {
+                System.out.println("UDP blocked - snapshots stay on TCP");
+                return;
+            }
+            out.println("UDP_READY");
+
+            // ALIVE tells the server we're still here when we have no moves to send over TCP
+            long lastAlive = System.currentTimeMillis();
+            while (true) {
+                DatagramLink.Packet packet = link.receive(UDP_ALIVE_MILLIS);
+                if (packet != null && packet.message.startsWith("SNAPSHOT:")) {
+                    Platform.runLater(() -> handleServerMessage(packet.message));
+                }
+                long now = System.currentTimeMillis();
+                if (now - lastAlive >= UDP_ALIVE_MILLIS) {
+                    link.send("ALIVE:" + token);
+                    lastAlive = now;
+                }
+            }
+        } catch (IOException | java.nio.channels.ClosedSelectorException e) {
+            // Link closed with the game
+        } finally {
+            udpLink = null;
+        }
+    }
+
+    private void handleSnapshot(String[] parts) {
+        // Datagrams can arrive late or twice; only ever move forward
+        if (!snapshotTicks.accept(Integer.parseInt(parts[1]))) {
+            return;
+        }
+
+        Snapshot snapshot = new Snapshot();
+        snapshot.receivedAt = System.nanoTime();
+        int opponentBase = myPlayerNumber == 1 ? 6 : 3;
+        snapshot.opponentX = Integer.parseInt(parts[opponentBase]);
+        snapshot.opponentY = Integer.parseInt(parts[opponentBase + 1]);
+
+        String[] ghostCells = parts[9].split(";");
+        snapshot.ghostX = new int[ghostCells.length];
+        snapshot.ghostY = new int[ghostCells.length];
+        for (int i = 0; i < ghostCells.length; i++) {
+            String[] cell = ghostCells[i].split(",");
+            snapshot.ghostX[i] = Integer.parseInt(cell[0]);
+            snapshot.ghostY[i] = Integer.parseInt(cell[1]);
+        }
+
+        snapshots.add(snapshot);
+        if (snapshots.size() > MAX_SNAPSHOTS) {
+            snapshots.remove(0);
+        }
+
+        // Logical positions follow the newest snapshot; drawing lags behind it
+        int opponentDir = Integer.parseInt(parts[opponentBase + 2]);
+        if (myPlayerNumber == 1) {
+            pacman2X = snapshot.opponentX;
+            pacman2Y = snapshot.opponentY;
+            direction2 = opponentDir;
+        } else {
+            pacman1X = snapshot.opponentX;
+            pacman1Y = snapshot.opponentY;
+            direction1 = opponentDir;
+        }
+        for (int i = 0; i < ghosts.size() && i < ghostCells.length; i++) {
+            ghosts.get(i).x = snapshot.ghostX[i];
+            ghosts.get(i).y = snapshot.ghostY[i];
+        }
+
+        int myBase = myPlayerNumber == 1 ? 3 : 6;
+        reconcile(Integer.parseInt(parts[2]), Integer.parseInt(parts[myBase]), Integer.parseInt(parts[myBase + 1]));
+    }
+
+    // Drop moves the server has processed; if it ended up somewhere other than we
+    // predicted for that move, snap to the server's position and forget the rest
+    private void reconcile(int ackSeq, int serverX, int serverY) {
+        int[] acked = null;
+        while (!pendingMoves.isEmpty() && pendingMoves.peekFirst()[0] <= ackSeq) {
+            acked = pendingMoves.pollFirst();
+        }
+
+        if (acked != null) {
+            if (acked[1] != serverX || acked[2] != serverY) {
+                pendingMoves.clear();
+                setMyPosition(serverX, serverY);
+            }
+        } else if (pendingMoves.isEmpty()) {
+            setMyPosition(serverX, serverY);
+        }
+    }
+
+    private void setMyPosition(int x, int y) {
+        if (myPlayerNumber == 1) {
+            pacman1X = x;
+            pacman1Y = y;
+        } else {
+            pacman2X = x;
+            pacman2Y = y;
+        }
+    }
+
+    // Move our own pacman right away and tell the server; it confirms or corrects later.
+    // Only the position is predicted: dots and scores change when the server's
+    // DOT_REMOVED and SCORE_UPDATE arrive, since the opponent may get there first.
+    private void predictLocalMove() {
+        if (!gameRunning || gameOver) return;
+
+        if (myPlayerNumber == 1) {
+            direction1 = localDirection;
+        } else {
+            direction2 = localDirection;
+        }
+        if (!stepPacman(myPlayerNumber)) {
+            return;
+        }
+
+        int newX = myPlayerNumber == 1 ? pacman1X : pacman2X;
+        int newY = myPlayerNumber == 1 ? pacman1Y : pacman2Y;
+        int seq = ++nextMoveSeq;
+        pendingMoves.addLast(new int[]{seq, newX, newY});
+        out.println("MOVE:" + newX + ":" + newY + ":" + localDirection + ":" + seq);
+
+        if (dots[newY][newX]) {
+            out.println("DOT_COLLECTED:" + newX + ":" + newY);
+        }
+    }
+
+    // Place the opponent and ghosts between the two snapshots around (now - delay)
+    private void updateInterpolatedPositions(long now) {
+        if (snapshots.isEmpty()) {
+            return;
+        }
+
+        long renderTime = now - INTERPOLATION_DELAY;
+        while (snapshots.size() > 2 && snapshots.get(1).receivedAt <= renderTime) {
+            snapshots.remove(0);
+        }
+
+        Snapshot from = snapshots.get(0);
+        Snapshot to = snapshots.size() > 1 ? snapshots.get(1) : from;
+        double t = 1.0;
+        if (to != from) {
+            t = (renderTime - from.receivedAt) / (double) (to.receivedAt - from.receivedAt);
+            t = Math.max(0.0, Math.min(1.0, t));
+        }
+
+        opponentDrawX = interpolate(from.opponentX, to.opponentX, t);
+        opponentDrawY = interpolate(from.opponentY, to.opponentY, t);
+        if (Math.abs(to.opponentX - from.opponentX) + Math.abs(to.opponentY - from.opponentY) > 1) {
+            // Respawned: jump instead of sliding across the maze
+            opponentDrawX = t < 1.0 ? from.opponentX : to.opponentX;
+            opponentDrawY = t < 1.0 ? from.opponentY : to.opponentY;
+        }
+
+        for (int i = 0; i < ghosts.size() && i < from.ghostX.length && i < to.ghostX.length; i++) {
+            Ghost ghost = ghosts.get(i);
+            ghost.drawX = interpolate(from.ghostX[i], to.ghostX[i], t);
+            ghost.drawY = interpolate(from.ghostY[i], to.ghostY[i], t);
+        }
+    }
+
+    private double interpolate(int from, int to, double t) {
+        return from + (to - from) * t;
+    }
+
+    private boolean isSnapshotMode() {
+        return currentMode == GameMode.ONLINE && !lockstep;
+    }
+
+    private void finishOnlineGame(int winner, int finalScore1, int finalScore2) {
+        int myScore = myPlayerNumber == 1 ? finalScore1 : finalScore2;
+        int theirScore = myPlayerNumber == 1 ? finalScore2 : finalScore1;
+
+        String message;
+        if (winner == 0) {
+            message = "🤝 TIE! Both scored " + myScore;
+        } else if (winner == myPlayerNumber) {
+            message = "🎉 YOU WIN! " + myScore + " vs " + theirScore;
+        } else {
+            message = "💀 " + opponentName + " WINS! " + theirScore + " vs " + myScore;
+        }
+        // The server records online matches for both players (lockstep matches aren't recorded)
+        stopOnlineGame(message);
+    }
+
+    private void stopOnlineGame(String message) {
+        gameRunning = false;
+        gameOver = true;
+        if (gameLoop != null) {
+            gameLoop.stop();
+        }
+        if (statusLabel != null) {
+            statusLabel.setText(message);
+        }
+    }
+
+    private void closeConnection() {
+        try {
+            if (udpLink != null) udpLink.close();
+            if (socket != null) socket.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        socket = null;
+    }
+
     private Button createMenuButton(String text, String subtitle) {
         VBox btnContent = new VBox(5);
         btnContent.setAlignment(Pos.CENTER);
@@ -168,7 +605,11 @@ public class PacmanGame extends Application {
         modeCombo.getItems().addAll("SOLO", "VS_COMPUTER", "MULTIPLAYER");
         modeCombo.setValue("SOLO");
 
-        modeSelector.getChildren().addAll(modeLabel, modeCombo);
+        ComboBox<String> periodCombo = new ComboBox<>();
+        periodCombo.getItems().addAll("All Time", "This Week", "Today");
+        periodCombo.setValue("All Time");
+
+        modeSelector.getChildren().addAll(modeLabel, modeCombo, periodCombo);
 
         ScrollPane scrollPane = new ScrollPane();
         scrollPane.setStyle("-fx-control-inner-background: #0f3460;");
@@ -179,7 +620,17 @@ public class PacmanGame extends Application {
 
         Runnable updateLeaderboard = () -> {
             String selectedMode = modeCombo.getValue();
-            List<GameScore> topScores = dbManager.getTopScores("Pacman", selectedMode, 10);
+            List<GameScore> topScores;
+            switch (periodCombo.getValue()) {
+                case "Today":
+                    topScores = dbManager.getDailyTopScores("Pacman", selectedMode, 10);
+                    break;
+                case "This Week":
+                    topScores = dbManager.getWeeklyTopScores("Pacman", selectedMode, 10);
+                    break;
+                default:
+                    topScores = dbManager.getTopScores("Pacman", selectedMode, 10);
+            }
             scoreList.getChildren().clear();
 
             if (topScores.isEmpty()) {
@@ -198,6 +649,7 @@ public class PacmanGame extends Application {
         };
 
         modeCombo.setOnAction(e -> updateLeaderboard.run());
+        periodCombo.setOnAction(e -> updateLeaderboard.run());
         updateLeaderboard.run();
 
         scrollPane.setContent(scoreList);
@@ -308,8 +760,10 @@ public class PacmanGame extends Application {
             resetGame();
             canvas.requestFocus();
         });
+        restartBtn.setDisable(mode == GameMode.ONLINE);
         menuBtn.setOnAction(e -> {
             if (gameLoop != null) gameLoop.stop();
+            closeConnection();
             showModeSelection();
         });
 
@@ -339,7 +793,18 @@ public class PacmanGame extends Application {
         dots = new boolean[GRID_HEIGHT][GRID_WIDTH];
         ghosts = new ArrayList<>();
 
-        createMaze();
+        if (currentMode == GameMode.ONLINE) {
+            // Maze comes from the server; seeding ghosts with it keeps both clients identical
+            loadMaze(maze);
+            random = new Random(maze.getSeed());
+            initializeLockstep();
+            snapshots.clear();
+            pendingMoves.clear();
+            nextMoveSeq = 0;
+            snapshotTicks.reset();
+        } else {
+            createMaze();
+        }
 
         pacman1X = 1;
         pacman1Y = 1;
@@ -373,58 +838,29 @@ public class PacmanGame extends Application {
     }
 
     private void createMaze() {
-        for (int y = 0; y < GRID_HEIGHT; y++) {
-            for (int x = 0; x < GRID_WIDTH; x++) {
-                walls[y][x] = false;
-                dots[y][x] = true;
-            }
-        }
-
-        for (int x = 0; x < GRID_WIDTH; x++) {
-            walls[0][x] = true;
-            walls[GRID_HEIGHT - 1][x] = true;
-            dots[0][x] = false;
-            dots[GRID_HEIGHT - 1][x] = false;
-        }
-        for (int y = 0; y < GRID_HEIGHT; y++) {
-            walls[y][0] = true;
-            walls[y][GRID_WIDTH - 1] = true;
-            dots[y][0] = false;
-            dots[y][GRID_WIDTH - 1] = false;
-        }
-
-        for (int y = 2; y < GRID_HEIGHT - 2; y += 4) {
-            for (int x = 2; x < GRID_WIDTH - 2; x += 4) {
-                createWallBlock(x, y, 2, 2);
-            }
-        }
-
-        for (int y = 4; y < GRID_HEIGHT - 4; y += 6) {
-            for (int x = 4; x < GRID_WIDTH - 4; x += 2) {
-                if (random.nextDouble() < 0.3) {
-                    walls[y][x] = true;
-                    dots[y][x] = false;
-                }
-            }
-        }
+        maze = PacmanMaze.generate(random.nextLong());
+        loadMaze(maze);
+    }
 
-        int centerX = GRID_WIDTH / 2;
-        int centerY = GRID_HEIGHT / 2;
-        for (int dy = -1; dy <= 1; dy++) {
-            for (int dx = -2; dx <= 2; dx++) {
-                walls[centerY + dy][centerX + dx] = false;
-                dots[centerY + dy][centerX + dx] = false;
-            }
+    private void initializeLockstep() {
+        currentTick = 0;
+        myInputs.clear();
+        opponentInputs.clear();
+
+        int myStart = myPlayerNumber == 1 ? 0 : 2;
+        int opponentStart = myPlayerNumber == 1 ? 2 : 0;
+        localDirection = myStart;
+        for (int tick = 0; tick < INPUT_DELAY; tick++) {
+            myInputs.put(tick, myStart);
+            opponentInputs.put(tick, opponentStart);
         }
     }
 
-    private void createWallBlock(int x, int y, int width, int height) {
-        for (int dy = 0; dy < height; dy++) {
-            for (int dx = 0; dx < width; dx++) {
-                if (y + dy < GRID_HEIGHT && x + dx < GRID_WIDTH) {
-                    walls[y + dy][x + dx] = true;
-                    dots[y + dy][x + dx] = false;
-                }
+    private void loadMaze(PacmanMaze source) {
+        for (int y = 0; y < GRID_HEIGHT; y++) {
+            for (int x = 0; x < GRID_WIDTH; x++) {
+                walls[y][x] = source.isWall(x, y);
+                dots[y][x] = source.hasInitialDot(x, y);
             }
         }
     }
@@ -434,23 +870,30 @@ public class PacmanGame extends Application {
             KeyCode code = e.getCode();
 
             if (!gameRunning || gameOver) {
-                if (code == KeyCode.SPACE) {
+                if (code == KeyCode.SPACE && currentMode != GameMode.ONLINE) {
                     resetGame();
                 }
                 return;
             }
 
+            int arrowDirection = -1;
             if (code == KeyCode.RIGHT) {
-                direction1 = 0;
-                e.consume();
+                arrowDirection = 0;
             } else if (code == KeyCode.DOWN) {
-                direction1 = 1;
-                e.consume();
+                arrowDirection = 1;
             } else if (code == KeyCode.LEFT) {
-                direction1 = 2;
-                e.consume();
+                arrowDirection = 2;
             } else if (code == KeyCode.UP) {
-                direction1 = 3;
+                arrowDirection = 3;
+            }
+
+            if (arrowDirection >= 0) {
+                // Online input is applied on a future tick, not immediately
+                if (currentMode == GameMode.ONLINE) {
+                    localDirection = arrowDirection;
+                } else {
+                    direction1 = arrowDirection;
+                }
                 e.consume();
             }
 
@@ -479,6 +922,24 @@ public class PacmanGame extends Application {
         gameLoop = new AnimationTimer() {
             @Override
             public void handle(long now) {
+                if (currentMode == GameMode.ONLINE && lockstep) {
+                    if (now - lastMoveTime >= LOCKSTEP_TICK && runLockstepTick()) {
+                        lastMoveTime = now;
+                    }
+                    draw();
+                    return;
+                }
+
+                if (isSnapshotMode()) {
+                    // Same tick rate as offline; the server moves the ghosts
+                    if (now - lastMoveTime >= moveDelay) {
+                        predictLocalMove();
+                        lastMoveTime = now;
+                    }
+                    draw();
+                    return;
+                }
+
                 if (now - lastMoveTime >= moveDelay) {
                     updatePacman();
                     lastMoveTime = now;
@@ -511,7 +972,81 @@ public class PacmanGame extends Application {
         }
     }
 
+    // Advance one fixed tick once both players' inputs for it are known
+    private boolean runLockstepTick() {
+        if (!gameRunning || gameOver) return false;
+
+        Integer mine = myInputs.get(currentTick);
+        Integer theirs = opponentInputs.get(currentTick);
+        if (mine == null || theirs == null) {
+            return false; // wait for the slower peer
+        }
+        myInputs.remove(currentTick);
+        opponentInputs.remove(currentTick);
+
+        if (myPlayerNumber == 1) {
+            direction1 = mine;
+            direction2 = theirs;
+        } else {
+            direction1 = theirs;
+            direction2 = mine;
+        }
+
+        int inputTick = currentTick + INPUT_DELAY;
+        myInputs.put(inputTick, localDirection);
+        out.println("INPUT:" + inputTick + ":" + localDirection);
+
+        movePacman(1);
+        movePacman(2);
+
+        // Ghosts move 3 ticks out of 4, matching the offline 150ms/200ms pacing
+        if (currentTick % 4 != 3) {
+            updateGhosts();
+        }
+
+        if (currentTick % HASH_INTERVAL == 0) {
+            out.println("HASH:" + currentTick + ":" + stateHash());
+        }
+        currentTick++;
+
+        if (!gameOver && checkWin()) {
+            endGame();
+        }
+        return true;
+    }
+
+    // Hash of everything the simulation depends on, compared by the server to spot desyncs
+    private int stateHash() {
+        int hash = Arrays.deepHashCode(dots);
+        hash = 31 * hash + Objects.hash(pacman1X, pacman1Y, direction1, score1, lives1,
+                pacman2X, pacman2Y, direction2, score2, lives2);
+        for (Ghost ghost : ghosts) {
+            hash = 31 * hash + ghost.x;
+            hash = 31 * hash + ghost.y;
+        }
+        return hash;
+    }
+
     private void movePacman(int player) {
+        if (!stepPacman(player)) {
+            return;
+        }
+
+        int x = player == 1 ? pacman1X : pacman2X;
+        int y = player == 1 ? pacman1Y : pacman2Y;
+        if (dots[y][x]) {
+            dots[y][x] = false;
+            if (player == 1) {
+                score1 += 10;
+            } else {
+                score2 += 10;
+            }
+            updateLabels();
+        }
+    }
+
+    // Move one tile in the player's direction unless a wall is in the way; true if it moved
+    private boolean stepPacman(int player) {
         int currentX = player == 1 ? pacman1X : pacman2X;
         int currentY = player == 1 ? pacman1Y : pacman2Y;
         int direction = player == 1 ? direction1 : direction2;
@@ -526,25 +1061,17 @@ public class PacmanGame extends Application {
             case 3: newY--; break;
         }
 
-        if (newX >= 0 && newX < GRID_WIDTH && newY >= 0 && newY < GRID_HEIGHT && !walls[newY][newX]) {
-            if (player == 1) {
-                pacman1X = newX;
-                pacman1Y = newY;
-            } else {
-                pacman2X = newX;
-                pacman2Y = newY;
-            }
-
-            if (dots[newY][newX]) {
-                dots[newY][newX] = false;
-                if (player == 1) {
-                    score1 += 10;
-                } else {
-                    score2 += 10;
-                }
-                updateLabels();
-            }
+        if (newX < 0 || newX >= GRID_WIDTH || newY < 0 || newY >= GRID_HEIGHT || walls[newY][newX]) {
+            return false;
         }
+        if (player == 1) {
+            pacman1X = newX;
+            pacman1Y = newY;
+        } else {
+            pacman2X = newX;
+            pacman2Y = newY;
+        }
+        return true;
     }
 
     private void computerMove() {
@@ -634,9 +1161,16 @@ public class PacmanGame extends Application {
         String message;
         boolean won = false;
 
-        if (currentMode == GameMode.SOLO) {
+        if (currentMode == GameMode.ONLINE) {
+            String reason = checkWin() ? "all_dots" : "no_lives";
+            out.println("GAME_OVER:" + reason + ":" + score1 + ":" + score2 + ":" + lives1 + ":" + lives2);
+
+            // The server confirms the result with GAME_END
+            message = "Game over! Waiting for result...";
+        } else if (currentMode == GameMode.SOLO) {
             won = lives1 > 0;
-            message = won ? "🎉 YOU WIN! Score: " + score1 : "💀 GAME OVER! Score: " + score1;
+            message = (won ? "🎉 YOU WIN! Score: " + score1 : "💀 GAME OVER! Score: " + score1)
+                    + percentileText(score1);
             saveScore(score1, playTime, won);
         } else if (currentMode == GameMode.VS_COMPUTER) {
             if (score1 > score2) {
@@ -647,6 +1181,7 @@ public class PacmanGame extends Application {
             } else {
                 message = "🤝 TIE! Both scored " + score1;
             }
+            message += percentileText(score1);
             saveScore(score1, playTime, won);
         } else {
             if (score1 > score2) {
@@ -663,6 +1198,12 @@ public class PacmanGame extends Application {
         statusLabel.setText(message);
     }
 
+    // Looked up before the score is saved, so it compares against earlier games only
+    private String percentileText(int finalScore) {
+        double percentile = dbManager.getScorePercentile("Pacman", currentMode.toString(), "Normal", finalScore);
+        return percentile >= 0 ? String.format(" - better than %.0f%% of games", percentile) : "";
+    }
+
     private void saveScore(int finalScore, int playTime, boolean won) {
         String gameMode = currentMode.toString();
         dbManager.saveScore("Pacman", authManager.getDisplayName(), finalScore, gameMode, "Normal", playTime, won);
@@ -678,6 +1219,11 @@ public class PacmanGame extends Application {
     }
 
     private void draw() {
+        boolean interpolated = isSnapshotMode();
+        if (interpolated) {
+            updateInterpolatedPositions(System.nanoTime());
+        }
+
         gc.setFill(Color.BLACK);
         gc.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
 
@@ -701,25 +1247,39 @@ public class PacmanGame extends Application {
         }
 
         for (Ghost ghost : ghosts) {
+            double gx = interpolated ? ghost.drawX : ghost.x;
+            double gy = interpolated ? ghost.drawY : ghost.y;
             gc.setFill(ghost.color);
-            gc.fillOval(ghost.x * TILE_SIZE + 2, ghost.y * TILE_SIZE + 2,
+            gc.fillOval(gx * TILE_SIZE + 2, gy * TILE_SIZE + 2,
                     TILE_SIZE - 4, TILE_SIZE - 4);
             gc.setFill(Color.WHITE);
-            gc.fillOval(ghost.x * TILE_SIZE + 6, ghost.y * TILE_SIZE + 6, 4, 4);
-            gc.fillOval(ghost.x * TILE_SIZE + 14, ghost.y * TILE_SIZE + 6, 4, 4);
+            gc.fillOval(gx * TILE_SIZE + 6, gy * TILE_SIZE + 6, 4, 4);
+            gc.fillOval(gx * TILE_SIZE + 14, gy * TILE_SIZE + 6, 4, 4);
             gc.setFill(Color.BLACK);
-            gc.fillOval(ghost.x * TILE_SIZE + 7, ghost.y * TILE_SIZE + 7, 2, 2);
-            gc.fillOval(ghost.x * TILE_SIZE + 15, ghost.y * TILE_SIZE + 7, 2, 2);
+            gc.fillOval(gx * TILE_SIZE + 7, gy * TILE_SIZE + 7, 2, 2);
+            gc.fillOval(gx * TILE_SIZE + 15, gy * TILE_SIZE + 7, 2, 2);
         }
 
-        drawPacman(pacman1X, pacman1Y, direction1, Color.YELLOW);
+        double p1X = pacman1X, p1Y = pacman1Y;
+        double p2X = pacman2X, p2Y = pacman2Y;
+        if (interpolated && !snapshots.isEmpty()) {
+            if (myPlayerNumber == 1) {
+                p2X = opponentDrawX;
+                p2Y = opponentDrawY;
+            } else {
+                p1X = opponentDrawX;
+                p1Y = opponentDrawY;
+            }
+        }
+
+        drawPacman(p1X, p1Y, direction1, Color.YELLOW);
 
         if (currentMode != GameMode.SOLO) {
-            drawPacman(pacman2X, pacman2Y, direction2, Color.RED);
+            drawPacman(p2X, p2Y, direction2, Color.RED);
         }
     }
 
-    private void drawPacman(int x, int y, int dir, Color color) {
+    private void drawPacman(double x, double y, int dir, Color color) {
         gc.setFill(color);
         gc.fillArc(x * TILE_SIZE + 2, y * TILE_SIZE + 2,
                 TILE_SIZE - 4, TILE_SIZE - 4,
@@ -731,6 +1291,7 @@ public class PacmanGame extends Application {
             case SOLO: return "Solo Mode";
             case VS_COMPUTER: return "VS Computer";
             case MULTIPLAYER: return "Multiplayer";
+            case ONLINE: return "Online vs " + opponentName;
             default: return "Pacman";
         }
     }
@@ -754,6 +1315,8 @@ public class PacmanGame extends Application {
     private String getControlsText() {
         if (currentMode == GameMode.MULTIPLAYER) {
             return "P1: Arrow Keys | P2: WASD";
+        } else if (currentMode == GameMode.ONLINE) {
+            return "Arrow Keys to Move | You are " + (myPlayerNumber == 1 ? "Yellow" : "Red");
         } else {
             return "Arrow Keys to Move | Eat all dots!";
         }
@@ -773,22 +1336,41 @@ public class PacmanGame extends Application {
                 "-fx-font-weight: bold; -fx-padding: 10 20; -fx-background-radius: 8;"));
     }
 
+    private void showAlert(String title, String message) {
+        Alert alert = new Alert(Alert.AlertType.INFORMATION);
+        alert.setTitle(title);
+        alert.setHeaderText(null);
+        alert.setContentText(message);
+        alert.showAndWait();
+    }
+
     @Override
     public void stop() {
         if (gameLoop != null) {
             gameLoop.stop();
         }
+        closeConnection();
+    }
+
+    // One server snapshot as seen by this client
+    static class Snapshot {
+        long receivedAt;
+        int opponentX, opponentY;
+        int[] ghostX, ghostY;
     }
 
     class Ghost {
         int x, y;
         int startX, startY;
+        double drawX, drawY; // interpolated position in snapshot mode
         Color color;
         String name;
 
         Ghost(int x, int y, Color color, String name) {
             this.x = x;
             this.y = y;
+            this.drawX = x;
+            this.drawY = y;
             this.startX = x;
             this.startY = y;
             this.color = color;
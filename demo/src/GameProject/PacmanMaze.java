@@ -0,0 +1,142 @@
+package GameProject;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.Random;
+
+// Pacman maze layout shared by PacmanGame and PacmanServer.
+// Walls are packed one bit per cell so the server can check any tile in O(1)
+// and ship the whole layout inside the START message.
+class PacmanMaze {
+    public static final int WIDTH = 24;
+    public static final int HEIGHT = 20;
+    public static final int CELLS = WIDTH * HEIGHT;
+
+    private static final int WORDS = (CELLS + 63) >>> 6;
+
+    private final long seed;
+    private final long[] walls;
+
+    private PacmanMaze(long seed, long[] walls) {
+        this.seed = seed;
+        this.walls = walls;
+    }
+
+    // Build the maze the same way every time for a given seed
+    public static PacmanMaze generate(long seed) {
+        Random random = new Random(seed);
+        PacmanMaze maze = new PacmanMaze(seed, new long[WORDS]);
+
+        for (int x = 0; x < WIDTH; x++) {
+            maze.setWall(x, 0);
+            maze.setWall(x, HEIGHT - 1);
+        }
+        for (int y = 0; y < HEIGHT; y++) {
+            maze.setWall(0, y);
+            maze.setWall(WIDTH - 1, y);
+        }
+
+        for (int y = 2; y < HEIGHT - 2; y += 4) {
+            for (int x = 2; x < WIDTH - 2; x += 4) {
+                maze.createWallBlock(x, y, 2, 2);
+            }
+        }
+
+        for (int y = 4; y < HEIGHT - 4; y += 6) {
+            for (int x = 4; x < WIDTH - 4; x += 2) {
+                if (random.nextDouble() < 0.3) {
+                    maze.setWall(x, y);
+                }
+            }
+        }
+
+        // Ghost pen in the middle stays open
+        int centerX = WIDTH / 2;
+        int centerY = HEIGHT / 2;
+        for (int dy = -1; dy <= 1; dy++) {
+            for (int dx = -2; dx <= 2; dx++) {
+                maze.clearWall(centerX + dx, centerY + dy);
+            }
+        }
+
+        return maze;
+    }
+
+    // Rebuild a maze received from the server (see encode)
+    public static PacmanMaze decode(long seed, String encodedWalls) {
+        byte[] bytes = Base64.getUrlDecoder().decode(encodedWalls);
+        if (bytes.length != WORDS * Long.BYTES) {
+            throw new IllegalArgumentException("Bad maze length: " + bytes.length);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        long[] walls = new long[WORDS];
+        for (int i = 0; i < WORDS; i++) {
+            walls[i] = buffer.getLong();
+        }
+        return new PacmanMaze(seed, walls);
+    }
+
+    // Wall bits as URL-safe Base64, safe to embed in a ':'-separated message
+    public String encode() {
+        ByteBuffer buffer = ByteBuffer.allocate(WORDS * Long.BYTES);
+        for (long word : walls) {
+            buffer.putLong(word);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public static boolean inBounds(int x, int y) {
+        return x >= 0 && x < WIDTH && y >= 0 && y < HEIGHT;
+    }
+
+    public static int cellIndex(int x, int y) {
+        return y * WIDTH + x;
+    }
+
+    public boolean isWall(int x, int y) {
+        int cell = cellIndex(x, y);
+        return (walls[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    // Dots start on every open tile except the ghost pen
+    public boolean hasInitialDot(int x, int y) {
+        return !isWall(x, y) && !isGhostPen(x, y);
+    }
+
+    // A step is legal if it stays on the board, lands on an open tile and
+    // moves at most one tile horizontally or vertically
+    public boolean isLegalStep(int fromX, int fromY, int toX, int toY) {
+        if (!inBounds(toX, toY) || isWall(toX, toY)) {
+            return false;
+        }
+        return Math.abs(toX - fromX) + Math.abs(toY - fromY) <= 1;
+    }
+
+    private static boolean isGhostPen(int x, int y) {
+        return Math.abs(x - WIDTH / 2) <= 2 && Math.abs(y - HEIGHT / 2) <= 1;
+    }
+
+    private void createWallBlock(int x, int y, int width, int height) {
+        for (int dy = 0; dy < height; dy++) {
+            for (int dx = 0; dx < width; dx++) {
+                if (y + dy < HEIGHT && x + dx < WIDTH) {
+                    setWall(x + dx, y + dy);
+                }
+            }
+        }
+    }
+
+    private void setWall(int x, int y) {
+        int cell = cellIndex(x, y);
+        walls[cell >>> 6] |= 1L << cell;
+    }
+
+    private void clearWall(int x, int y) {
+        int cell = cellIndex(x, y);
+        walls[cell >>> 6] &= ~(1L << cell);
+    }
+}
@@ -7,12 +7,45 @@ import java.util.concurrent.*;
 
 public class PacmanServer {
     private static final int PORT = 5558;
+    private static final Random seedSource = new Random();
+    private static boolean lockstepMode = false;
+
+    // One shared timer thread drives every authoritative room; a tick is ~microseconds of work
+    private static final long TICK_MILLIS = 200;
+    private static final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor();
     private static List<ClientHandler> waitingPlayers = new CopyOnWriteArrayList<>();
     private static List<GameRoom> activeGames = new CopyOnWriteArrayList<>();
 
+    // Optional UDP channel for snapshots, on the same port number as TCP.
+    // Clients prove they can receive on it before the server switches them over.
+    private static DatagramLink udpLink;
+    private static final Map<String, ClientHandler> udpTokens = new ConcurrentHashMap<>();
+
+    // Logged-in players' sessions, checked on every message
+    private static final SessionRegistry SESSIONS = new SessionRegistry();
+    // Per user (per address for guests); game traffic itself isn't limited
+    private static final RateLimiter CONNECT_LIMIT = new RateLimiter(5, 5.0 / 60);
+    // Finished matches are stored here rather than by the clients
+    private static MatchResultWriter results;
+
     public static void main(String[] args) {
+        // "lockstep" makes clients simulate the game themselves; the server only relays inputs.
+        // "udpLoss=0.2" drops about 20% of the snapshots sent over UDP, to try the client on a bad network.
+        DatagramLink.LossSimulator udpLoss = DatagramLink.LossSimulator.none();
+        for (String arg : args) {
+            if (arg.equalsIgnoreCase("lockstep")) {
+                lockstepMode = true;
+            } else if (arg.startsWith("udpLoss=")) {
+                udpLoss = DatagramLink.LossSimulator.random(Double.parseDouble(arg.substring(8)));
+            }
+        }
+
         System.out.println("👻 Pacman Server Starting...");
         System.out.println("📡 Listening on port: " + PORT);
+        System.out.println("🕹️ Mode: " + (lockstepMode ? "LOCKSTEP" : "AUTHORITATIVE"));
+
+        startUdp(udpLoss);
+        results = MatchResultWriter.startForServer();
 
         try (ServerSocket serverSocket = new ServerSocket(PORT)) {
             while (true) {
@@ -28,14 +61,58 @@ public class PacmanServer {
         }
     }
 
+    private static void startUdp(DatagramLink.LossSimulator loss) {
+        try {
+            udpLink = DatagramLink.bind(PORT, loss);
+        } catch (IOException e) {
+            System.err.println("⚠️ UDP unavailable, snapshots stay on TCP: " + e.getMessage());
+            return;
+        }
+
+        Thread udpThread = new Thread(() -> {
+            try {
+                while (true) {
+                    DatagramLink.Packet packet = udpLink.receive(0);
+                    // HELLO:token - remember where this player's datagrams come from
+                    if (packet.message.startsWith("HELLO:")) {
+                        ClientHandler handler = udpTokens.get(packet.message.substring(6));
+                        if (handler != null) {
+                            handler.udpAddress = packet.from;
+                            udpLink.send("UDP_OK", packet.from);
+                            handler.touchSession();
+                        }
+                    } else if (packet.message.startsWith("ALIVE:")) {
+                        // ALIVE:token - sent every second or so by clients on UDP
+                        ClientHandler handler = udpTokens.get(packet.message.substring(6));
+                        if (handler != null) {
+                            handler.touchSession();
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("❌ UDP receiver stopped: " + e.getMessage());
+            }
+        });
+        udpThread.setDaemon(true);
+        udpThread.start();
+        System.out.println("📡 UDP snapshots on port: " + PORT);
+    }
+
     static class ClientHandler implements Runnable {
         private Socket socket;
         private PrintWriter out;
         private BufferedReader in;
         private String playerName;
+        private int userId; // 0 for guests
+        private volatile String sessionToken; // null for guests; also read by the UDP thread
+        private String rateKey;
         private GameRoom gameRoom;
         private int playerNumber; // 1 or 2
 
+        private String udpToken;
+        private volatile SocketAddress udpAddress;
+        private volatile boolean udpActive = false;
+
         public ClientHandler(Socket socket) {
             this.socket = socket;
         }
@@ -46,8 +123,28 @@ public class PacmanServer {
                 in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
                 out = new PrintWriter(socket.getOutputStream(), true);
 
-                // Get player name
-                playerName = in.readLine();
+                // First line: "AUTH:<session token>" from a logged-in client, or a guest name
+                String handshake = in.readLine();
+                SessionTokens.Claims claims = SessionTokens.fromHandshake(handshake);
+                if (claims == null) {
+                    out.println("ERROR:Invalid or expired session - please log in again");
+                    return;
+                }
+                rateKey = claims.isAuthenticated() ? claims.username : socket.getInetAddress().getHostAddress();
+                if (!CONNECT_LIMIT.tryAcquire(rateKey)) {
+                    out.println("ERROR:Too many connections - try again later");
+                    return;
+                }
+                playerName = claims.username;
+                userId = claims.userId;
+                if (claims.isAuthenticated()) {
+                    sessionToken = handshake.substring(SessionTokens.AUTH_PREFIX.length());
+                    if (SESSIONS.open(sessionToken, claims) == null) {
+                        // Went idle or was closed earlier; the signature alone doesn't bring it back
+                        out.println("ERROR:Session expired - please log in again");
+                        return;
+                    }
+                }
                 System.out.println("👤 Player joined: " + playerName);
 
                 // Add to waiting list
@@ -59,6 +156,10 @@ public class PacmanServer {
                 // Listen for messages
                 String message;
                 while ((message = in.readLine()) != null) {
+                    if (sessionToken != null && SESSIONS.get(sessionToken) == null) {
+                        sendMessage("ERROR:Session expired - please log in again");
+                        break;
+                    }
                     if (gameRoom != null) {
                         gameRoom.handleMessage(this, message);
                     }
@@ -88,10 +189,57 @@ public class PacmanServer {
             }
         }
 
+        // Invite the client to open the UDP channel; it answers with UDP_READY over TCP
+        public void offerUdp() {
+            if (udpLink == null) {
+                return;
+            }
+            udpToken = UUID.randomUUID().toString();
+            udpTokens.put(udpToken, this);
+            sendMessage("UDP:" + PORT + ":" + udpToken);
+        }
+
+        public void confirmUdp() {
+            if (udpAddress != null) {
+                udpActive = true;
+                System.out.println("📡 " + playerName + " receives snapshots over UDP");
+            }
+        }
+
+        // Activity on the UDP side keeps the session alive too, since the TCP
+        // side can be quiet for a whole match; an expired session ends the connection
+        public void touchSession() {
+            if (sessionToken != null && SESSIONS.get(sessionToken) == null) {
+                sendMessage("ERROR:Session expired - please log in again");
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    // The TCP loop notices either way
+                }
+            }
+        }
+
+        // Latest-state-wins traffic: lost packets are simply superseded by the next one
+        public void sendState(String message) {
+            if (udpActive) {
+                try {
+                    udpLink.send(message, udpAddress);
+                    return;
+                } catch (IOException e) {
+                    udpActive = false;
+                }
+            }
+            sendMessage(message);
+        }
+
         public String getPlayerName() {
             return playerName;
         }
 
+        public int getUserId() {
+            return userId;
+        }
+
         public int getPlayerNumber() {
             return playerNumber;
         }
@@ -103,6 +251,9 @@ public class PacmanServer {
         private void cleanup() {
             try {
                 waitingPlayers.remove(this);
+                if (udpToken != null) {
+                    udpTokens.remove(udpToken);
+                }
                 if (gameRoom != null) {
                     gameRoom.playerDisconnected(this);
                 }
@@ -116,13 +267,27 @@ public class PacmanServer {
     static class GameRoom {
         private ClientHandler player1;
         private ClientHandler player2;
-        private Map<String, PlayerState> playerStates = new ConcurrentHashMap<>();
-        private Set<String> collectedDots = ConcurrentHashMap.newKeySet();
+        private final PlayerState state1 = new PlayerState(1, 1, 0);
+        private final PlayerState state2 = new PlayerState(PacmanMaze.WIDTH - 2, PacmanMaze.HEIGHT - 2, 2);
+        private final PacmanMaze maze = PacmanMaze.generate(seedSource.nextLong());
+        private CellBitSet collectedDots = new CellBitSet(PacmanMaze.CELLS);
+        private int totalDots;
+
+        // Lockstep rooms only relay inputs and compare periodic state hashes
+        private final boolean lockstep = lockstepMode;
+        private final Map<Integer, String> pendingHashes = new ConcurrentHashMap<>();
+
+        // Authoritative rooms move the ghosts here and push snapshots to both clients
+        private final List<GhostState> ghosts = new ArrayList<>();
+        private final Random random = new Random(maze.getSeed());
+        private ScheduledFuture<?> tickTask;
+        private int serverTick = 0;
 
         // Game state
         private int score1 = 0;
         private int score2 = 0;
-        private boolean gameActive = true;
+        private volatile boolean gameActive = true;
+        private final long startedAt = System.currentTimeMillis();
 
         public GameRoom(ClientHandler p1, ClientHandler p2) {
             this.player1 = p1;
@@ -132,9 +297,27 @@ public class PacmanServer {
             p1.setPlayerNumber(1);
             p2.setPlayerNumber(2);
 
-            // Initialize player states
-            playerStates.put(p1.getPlayerName(), new PlayerState(1, 1, 0));
-            playerStates.put(p2.getPlayerName(), new PlayerState(22, 18, 2));
+            for (int y = 0; y < PacmanMaze.HEIGHT; y++) {
+                for (int x = 0; x < PacmanMaze.WIDTH; x++) {
+                    if (maze.hasInitialDot(x, y)) {
+                        totalDots++;
+                    }
+                }
+            }
+
+            // Spawn tiles start empty, same as on the clients
+            collectedDots.add(PacmanMaze.cellIndex(state1.x, state1.y));
+            collectedDots.add(PacmanMaze.cellIndex(state2.x, state2.y));
+
+            // Same starting spots and order as PacmanGame's ghosts
+            int centerX = PacmanMaze.WIDTH / 2;
+            int centerY = PacmanMaze.HEIGHT / 2;
+            ghosts.add(new GhostState(centerX, centerY));
+            ghosts.add(new GhostState(centerX - 1, centerY));
+            ghosts.add(new GhostState(centerX + 1, centerY));
+            ghosts.add(new GhostState(centerX, centerY + 1));
+            ghosts.add(new GhostState(centerX - 2, centerY));
+            ghosts.add(new GhostState(centerX + 2, centerY));
         }
 
         public void start() {
@@ -142,56 +325,99 @@ public class PacmanServer {
             System.out.println("   Player 1: " + player1.getPlayerName());
             System.out.println("   Player 2: " + player2.getPlayerName());
 
-            // Send start message with player assignments
-            player1.sendMessage("START:1:" + player2.getPlayerName());
-            player2.sendMessage("START:2:" + player1.getPlayerName());
+            // Send start message with player assignments and the shared maze
+            // START:playerNumber:opponent:seed:walls:mode
+            String mazeInfo = maze.getSeed() + ":" + maze.encode() + ":" +
+                    (lockstep ? "LOCKSTEP" : "AUTHORITATIVE");
+            player1.sendMessage("START:1:" + player2.getPlayerName() + ":" + mazeInfo);
+            player2.sendMessage("START:2:" + player1.getPlayerName() + ":" + mazeInfo);
+
+            if (!lockstep) {
+                player1.offerUdp();
+                player2.offerUdp();
+                tickTask = ticker.scheduleAtFixedRate(this::tick, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+            }
         }
 
         public void handleMessage(ClientHandler sender, String message) {
+            if (lockstep && message.startsWith("INPUT:")) {
+                // INPUT:tick:direction - hot path, relay untouched
+                ClientHandler opponent = (sender == player1) ? player2 : player1;
+                opponent.sendMessage("OPPONENT_" + message);
+                return;
+            }
+
             String[] parts = message.split(":");
             String command = parts[0];
 
             System.out.println("📥 Message from " + sender.getPlayerName() + ": " + message);
 
-            switch (command) {
-                case "MOVE":
-                    handleMove(sender, parts);
-                    break;
-                case "DOT_COLLECTED":
-                    handleDotCollected(sender, parts);
-                    break;
-                case "GHOST_HIT":
-                    handleGhostHit(sender, parts);
-                    break;
-                case "GAME_OVER":
-                    handleGameOver(sender, parts);
-                    break;
+            try {
+                switch (command) {
+                    case "MOVE":
+                        handleMove(sender, parts);
+                        break;
+                    case "DOT_COLLECTED":
+                        handleDotCollected(sender, parts);
+                        break;
+                    case "GHOST_HIT":
+                        handleGhostHit(sender, parts);
+                        break;
+                    case "GAME_OVER":
+                        handleGameOver(sender, parts);
+                        break;
+                    case "HASH":
+                        handleStateHash(sender, parts);
+                        break;
+                    case "UDP_READY":
+                        sender.confirmUdp();
+                        break;
+                }
+            } catch (RuntimeException e) {
+                System.err.println("❌ Bad message from " + sender.getPlayerName() + ": " + message);
             }
         }
 
-        private void handleMove(ClientHandler sender, String[] parts) {
-            // MOVE:x:y:direction
+        private PlayerState stateOf(ClientHandler player) {
+            return player == player1 ? state1 : state2;
+        }
+
+        private synchronized void handleMove(ClientHandler sender, String[] parts) {
+            // MOVE:x:y:direction:seq - seq is echoed back in snapshots for client reconciliation
             int x = Integer.parseInt(parts[1]);
             int y = Integer.parseInt(parts[2]);
             int direction = Integer.parseInt(parts[3]);
+            int seq = parts.length > 4 ? Integer.parseInt(parts[4]) : 0;
 
-            PlayerState state = playerStates.get(sender.getPlayerName());
-            if (state != null) {
-                state.x = x;
-                state.y = y;
-                state.direction = direction;
+            PlayerState state = stateOf(sender);
+            state.lastSeq = Math.max(state.lastSeq, seq);
+
+            // Reject walls, off-board tiles and jumps of more than one tile
+            if (!maze.isLegalStep(state.x, state.y, x, y)) {
+                sender.sendMessage("MOVE_REJECTED:" + state.x + ":" + state.y + ":" + state.direction + ":" + seq);
+                return;
             }
 
-            // Broadcast to opponent
-            ClientHandler opponent = (sender == player1) ? player2 : player1;
-            opponent.sendMessage("OPPONENT_MOVE:" + x + ":" + y + ":" + direction);
+            state.x = x;
+            state.y = y;
+            state.direction = direction;
         }
 
-        private void handleDotCollected(ClientHandler sender, String[] parts) {
+        private synchronized void handleDotCollected(ClientHandler sender, String[] parts) {
             // DOT_COLLECTED:x:y
-            String dotKey = parts[1] + "," + parts[2];
+            int x = Integer.parseInt(parts[1]);
+            int y = Integer.parseInt(parts[2]);
+
+            // Only a dot that exists in the maze, under the sender's pacman, counts
+            PlayerState state = stateOf(sender);
+            if (!PacmanMaze.inBounds(x, y) || !maze.hasInitialDot(x, y)
+                    || state.x != x || state.y != y) {
+                // Usually a dot claimed right after a rejected move; MOVE_REJECTED already corrected it
+                System.out.println("   ❌ Ignored dot at [" + x + "," + y + "] from " + sender.getPlayerName());
+                return;
+            }
 
-            if (collectedDots.add(dotKey)) {
+            if (collectedDots.add(PacmanMaze.cellIndex(x, y))) {
                 // First time this dot is collected
                 if (sender == player1) {
                     score1 += 10;
@@ -200,8 +426,8 @@ public class PacmanServer {
                 }
 
                 // Notify both players
-                player1.sendMessage("DOT_REMOVED:" + parts[1] + ":" + parts[2]);
-                player2.sendMessage("DOT_REMOVED:" + parts[1] + ":" + parts[2]);
+                player1.sendMessage("DOT_REMOVED:" + x + ":" + y);
+                player2.sendMessage("DOT_REMOVED:" + x + ":" + y);
 
                 // Update scores
                 player1.sendMessage("SCORE_UPDATE:" + score1 + ":" + score2);
@@ -209,36 +435,193 @@ public class PacmanServer {
 
                 System.out.println("📊 Scores - " + player1.getPlayerName() + ": " + score1 +
                         " | " + player2.getPlayerName() + ": " + score2);
+
+                if (collectedDots.count() == totalDots) {
+                    finishGame(leaderByScore());
+                }
             }
         }
 
         private void handleGhostHit(ClientHandler sender, String[] parts) {
-            // GHOST_HIT - player hit by ghost
+            // GHOST_HIT - player hit by ghost; lives are only tracked here in authoritative rooms
             ClientHandler opponent = (sender == player1) ? player2 : player1;
             opponent.sendMessage("OPPONENT_HIT:" + sender.getPlayerName());
         }
 
-        private void handleGameOver(ClientHandler sender, String[] parts) {
-            // GAME_OVER:reason (all_dots or no_lives)
+        // Move ghosts, resolve hits and send each player a snapshot
+        private synchronized void tick() {
+            if (!gameActive) {
+                return;
+            }
+            serverTick++;
+
+            for (GhostState ghost : ghosts) {
+                moveGhost(ghost);
+            }
+            checkGhostHit(player1, state1);
+            checkGhostHit(player2, state2);
+            if (!gameActive) {
+                return;
+            }
+
+            // SNAPSHOT:tick:ackSeq:p1x:p1y:p1dir:p2x:p2y:p2dir:gx,gy;gx,gy;...
+            StringBuilder body = new StringBuilder();
+            body.append(state1.x).append(':').append(state1.y).append(':').append(state1.direction).append(':')
+                    .append(state2.x).append(':').append(state2.y).append(':').append(state2.direction).append(':');
+            for (int i = 0; i < ghosts.size(); i++) {
+                if (i > 0) body.append(';');
+                body.append(ghosts.get(i).x).append(',').append(ghosts.get(i).y);
+            }
+            player1.sendState("SNAPSHOT:" + serverTick + ":" + state1.lastSeq + ":" + body);
+            player2.sendState("SNAPSHOT:" + serverTick + ":" + state2.lastSeq + ":" + body);
+        }
+
+        // Same chase rule as PacmanGame.Ghost: head for the closer pacman, else wander
+        private void moveGhost(GhostState ghost) {
+            int dist1 = Math.abs(ghost.x - state1.x) + Math.abs(ghost.y - state1.y);
+            int dist2 = Math.abs(ghost.x - state2.x) + Math.abs(ghost.y - state2.y);
+            PlayerState target = dist2 < dist1 ? state2 : state1;
+
+            int dx = Integer.compare(target.x, ghost.x);
+            int dy = Integer.compare(target.y, ghost.y);
+
+            if (dx != 0 && isOpen(ghost.x + dx, ghost.y)) {
+                ghost.x += dx;
+            } else if (dy != 0 && isOpen(ghost.x, ghost.y + dy)) {
+                ghost.y += dy;
+            } else {
+                List<Integer> validDirs = new ArrayList<>();
+                if (isOpen(ghost.x + 1, ghost.y)) validDirs.add(0);
+                if (isOpen(ghost.x, ghost.y + 1)) validDirs.add(1);
+                if (isOpen(ghost.x - 1, ghost.y)) validDirs.add(2);
+                if (isOpen(ghost.x, ghost.y - 1)) validDirs.add(3);
+
+                if (!validDirs.isEmpty()) {
+                    int dir = validDirs.get(random.nextInt(validDirs.size()));
+                    if (dir == 0) ghost.x++;
+                    else if (dir == 1) ghost.y++;
+                    else if (dir == 2) ghost.x--;
+                    else ghost.y--;
+                }
+            }
+        }
+
+        private boolean isOpen(int x, int y) {
+            return PacmanMaze.inBounds(x, y) && !maze.isWall(x, y);
+        }
+
+        private void checkGhostHit(ClientHandler player, PlayerState state) {
+            for (GhostState ghost : ghosts) {
+                if (ghost.x == state.x && ghost.y == state.y) {
+                    state.lives--;
+                    if (player == player1) {
+                        state.x = 1;
+                        state.y = 1;
+                    } else {
+                        state.x = PacmanMaze.WIDTH - 2;
+                        state.y = PacmanMaze.HEIGHT - 2;
+                    }
+
+                    // HIT:playerNumber:livesLeft
+                    player1.sendMessage("HIT:" + player.getPlayerNumber() + ":" + state.lives);
+                    player2.sendMessage("HIT:" + player.getPlayerNumber() + ":" + state.lives);
+
+                    if (state.lives <= 0) {
+                        ClientHandler other = (player == player1) ? player2 : player1;
+                        finishGame(other.getPlayerNumber());
+                    }
+                    return;
+                }
+            }
+        }
+
+        private void handleStateHash(ClientHandler sender, String[] parts) {
+            // HASH:tick:hash - both lockstep clients report the same ticks
+            int tick = Integer.parseInt(parts[1]);
+            String hash = parts[2];
+
+            String other = pendingHashes.putIfAbsent(tick, sender.getPlayerNumber() + ":" + hash);
+            if (other == null || other.startsWith(sender.getPlayerNumber() + ":")) {
+                return;
+            }
+            pendingHashes.remove(tick);
+
+            if (!other.substring(other.indexOf(':') + 1).equals(hash)) {
+                System.out.println("⚠️ Desync detected at tick " + tick);
+                gameActive = false;
+                player1.sendMessage("DESYNC:" + tick);
+                player2.sendMessage("DESYNC:" + tick);
+                activeGames.remove(this);
+            }
+        }
+
+        private synchronized void handleGameOver(ClientHandler sender, String[] parts) {
+            // GAME_OVER:reason:score1:score2:lives1:lives2 (reason is all_dots or no_lives)
+            // Only lockstep clients report the end; authoritative rooms detect it in tick()
+            if (!lockstep || !gameActive) {
+                return;
+            }
+
             String reason = parts[1];
+            score1 = Integer.parseInt(parts[2]);
+            score2 = Integer.parseInt(parts[3]);
+            int lives1 = Integer.parseInt(parts[4]);
+            int lives2 = Integer.parseInt(parts[5]);
 
-            String winner;
-            if (reason.equals("all_dots")) {
-                winner = score1 > score2 ? player1.getPlayerName() :
-                        score2 > score1 ? player2.getPlayerName() : "TIE";
+            if (reason.equals("no_lives") && (lives1 > 0) != (lives2 > 0)) {
+                finishGame(lives1 > 0 ? 1 : 2);
             } else {
-                winner = sender == player1 ? player2.getPlayerName() : player1.getPlayerName();
+                finishGame(leaderByScore());
+            }
+        }
+
+        // Player number of the winner, or 0 for a tie. Numbers rather than names,
+        // since two players (two guests, say) can have the same name.
+        private int leaderByScore() {
+            return score1 > score2 ? 1 : score2 > score1 ? 2 : 0;
+        }
+
+        private void finishGame(int winner) {
+            boolean wasActive = gameActive;
+            gameActive = false;
+            if (tickTask != null) {
+                tickTask.cancel(false);
             }
 
             String finalMessage = "GAME_END:" + winner + ":" + score1 + ":" + score2;
             player1.sendMessage(finalMessage);
             player2.sendMessage(finalMessage);
 
-            System.out.println("🏆 Game ended. Winner: " + winner);
+            System.out.println("🏆 Game ended. Winner: " +
+                    (winner == 0 ? "TIE" : (winner == 1 ? player1 : player2).getPlayerName()));
+            // Lockstep scores and lives come from the clients' GAME_OVER, so they
+            // could be anything; only results the server simulated are recorded
+            if (wasActive && !lockstep) {
+                recordResult(winner);
+            }
             activeGames.remove(this);
         }
 
+        // winner is 1, 2 or 0 for a tie
+        private void recordResult(int winner) {
+            if (results == null) {
+                return;
+            }
+            int playTime = (int) ((System.currentTimeMillis() - startedAt) / 1000);
+            results.submit(new MatchResult("Pacman", "ONLINE", "Normal",
+                    new MatchResult.Side(player1.getPlayerName(), player1.getUserId(), score1,
+                            winner == 1),
+                    new MatchResult.Side(player2.getPlayerName(), player2.getUserId(), score2,
+                            winner == 2),
+                    playTime));
+        }
+
         public void playerDisconnected(ClientHandler player) {
+            gameActive = false;
+            if (tickTask != null) {
+                tickTask.cancel(false);
+            }
+
             ClientHandler other = (player == player1) ? player2 : player1;
             if (other != null) {
                 other.sendMessage("OPPONENT_DISCONNECTED");
@@ -250,6 +633,8 @@ public class PacmanServer {
         // Player state class
         static class PlayerState {
             int x, y, direction;
+            int lives = 3;
+            int lastSeq = 0;
 
             PlayerState(int x, int y, int direction) {
                 this.x = x;
@@ -257,5 +642,14 @@ public class PacmanServer {
                 this.direction = direction;
             }
         }
+
+        static class GhostState {
+            int x, y;
+
+            GhostState(int x, int y) {
+                this.x = x;
+                this.y = y;
+            }
+        }
     }
-}
\ No newline at end of file
+}
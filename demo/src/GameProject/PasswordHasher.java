@@ -0,0 +1,151 @@
+package GameProject;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// Salted PBKDF2 password hashes, computed on a small pool of low-priority
+// worker threads.
+//
+// Stored form: "pbkdf2$<iterations>$<salt>$<hash>" (Base64). The iteration
+// count is tuned at startup so one hash takes about -Dauth.hashMillis
+// (default 100) on this machine; hashes made with fewer iterations, and
+// old unsalted SHA-256 hex hashes, are reported by needsRehash.
+//
+// The pool queue is bounded: when QUEUE_CAPACITY tasks are already waiting,
+// submit fails with RejectedExecutionException instead of queueing more CPU
+// work behind a login burst.
+class PasswordHasher {
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final String PREFIX = "pbkdf2";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+    private static final int MIN_ITERATIONS = 10_000;
+    private static final int CALIBRATION_ITERATIONS = 10_000;
+    private static final int QUEUE_CAPACITY = 16;
+
+    private final SecureRandom random = new SecureRandom();
+    private final ThreadPoolExecutor workers;
+    private final int iterations;
+
+    public PasswordHasher() {
+        int threads = Math.max(1, Math.min(2, Runtime.getRuntime().availableProcessors() / 2));
+        AtomicInteger threadCount = new AtomicInteger();
+        workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), r -> {
+            Thread thread = new Thread(r, "password-hasher-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            // Game loops and network readers come first
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+        iterations = calibrate(Long.getLong("auth.hashMillis", 100));
+        System.out.println("Password hashing: " + iterations + " PBKDF2 iterations, " + threads + " worker(s)");
+    }
+
+    // Run task on the hashing pool; the future fails with
+    // RejectedExecutionException if the pool is saturated
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, workers);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    // The calls below do the work on the calling thread; use them from inside submit
+
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        Base64.Encoder base64 = Base64.getEncoder();
+        return PREFIX + "$" + iterations + "$" + base64.encodeToString(salt) + "$"
+                + base64.encodeToString(pbkdf2(password, salt, iterations));
+    }
+
+    public boolean verify(String password, String stored) {
+        if (stored == null) {
+            return false;
+        }
+        String[] parts = stored.split("\\$");
+        if (parts.length == 4 && PREFIX.equals(parts[0])) {
+            try {
+                byte[] salt = Base64.getDecoder().decode(parts[2]);
+                byte[] expected = Base64.getDecoder().decode(parts[3]);
+                return MessageDigest.isEqual(expected, pbkdf2(password, salt, Integer.parseInt(parts[1])));
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+        }
+        // Accounts created before salted hashes
+        return MessageDigest.isEqual(stored.getBytes(StandardCharsets.US_ASCII),
+                legacySha256(password).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    // True for legacy hashes and for ones weaker than the current setting
+    public boolean needsRehash(String stored) {
+        String[] parts = stored.split("\\$");
+        if (parts.length != 4 || !PREFIX.equals(parts[0])) {
+            return true;
+        }
+        try {
+            return Integer.parseInt(parts[1]) < iterations;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    public void close() {
+        workers.shutdown();
+    }
+
+    // Time a few short runs (the first ones warm up the JIT) and scale the
+    // best one to the target
+    private int calibrate(long targetMillis) {
+        long best = Long.MAX_VALUE;
+        byte[] salt = new byte[SALT_BYTES];
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            pbkdf2("calibration", salt, CALIBRATION_ITERATIONS);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        long scaled = CALIBRATION_ITERATIONS * TimeUnit.MILLISECONDS.toNanos(targetMillis) / Math.max(best, 1);
+        return (int) Math.max(MIN_ITERATIONS, Math.min(scaled, Integer.MAX_VALUE) / 1000 * 1000);
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Error hashing password", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    // The original unsalted SHA-256 hex form
+    private static String legacySha256(String password) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(password.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hexString = new StringBuilder();
+            for (byte b : hash) {
+                String hex = Integer.toHexString(0xff & b);
+                if (hex.length() == 1) hexString.append('0');
+                hexString.append(hex);
+            }
+            return hexString.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Error hashing password", e);
+        }
+    }
+}
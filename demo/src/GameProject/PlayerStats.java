@@ -0,0 +1,37 @@
+package GameProject;
+
+// PlayerStats data class
+class PlayerStats {
+    private String playerName;
+    private String gameName;
+    private int gamesPlayed;
+    private int bestScore;
+    private long totalScore;
+    private double avgScore;
+    private int wins;
+
+    public PlayerStats(String playerName, String gameName, int gamesPlayed,
+                       int bestScore, long totalScore, int wins) {
+        this.playerName = playerName;
+        this.gameName = gameName;
+        this.gamesPlayed = gamesPlayed;
+        this.bestScore = bestScore;
+        this.totalScore = totalScore;
+        this.avgScore = gamesPlayed > 0 ? (double) totalScore / gamesPlayed : 0;
+        this.wins = wins;
+    }
+
+    public String getPlayerName() { return playerName; }
+    public String getGameName() { return gameName; }
+    public int getGamesPlayed() { return gamesPlayed; }
+    public int getBestScore() { return bestScore; }
+    public long getTotalScore() { return totalScore; }
+    public double getAvgScore() { return avgScore; }
+    public int getWins() { return wins; }
+
+    @Override
+    public String toString() {
+        return String.format("%s (%s): %d games, Best: %d, Avg: %.1f, Wins: %d",
+                playerName, gameName, gamesPlayed, bestScore, avgScore, wins);
+    }
+}
@@ -0,0 +1,153 @@
+package GameProject;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Per-player, per-game totals kept in player_game_stats (see SchemaMigrations),
+// keyed by (user_id, game_id). The score writer updates the rollup in the
+// same transaction as the game_scores insert, so stats screens read one row
+// instead of aggregating a player's whole history. Rows already read are
+// mirrored in memory.
+class PlayerStatsRollup {
+    private static final String UPSERT_SQL =
+            "INSERT INTO player_game_stats (user_id, game_id, games_played, best_score, total_score, wins) " +
+                    "VALUES (?, ?, 1, ?, ?, ?) " +
+                    "ON DUPLICATE KEY UPDATE games_played = games_played + 1, " +
+                    "best_score = GREATEST(best_score, VALUES(best_score)), " +
+                    "total_score = total_score + VALUES(total_score), " +
+                    "wins = wins + VALUES(wins)";
+
+    private final ConnectionPool dataSource;
+    private final ScoreDimensions dimensions;
+    private final Map<String, Totals> mirror = new ConcurrentHashMap<>();
+    // Held while committing score batches and while loading mirror rows,
+    // so a row read from the database is never counted twice
+    private final Object commitLock = new Object();
+
+    public PlayerStatsRollup(ConnectionPool dataSource, ScoreDimensions dimensions) {
+        this.dataSource = dataSource;
+        this.dimensions = dimensions;
+    }
+
+    // Add the rollup updates for a batch of new scores to the writer's transaction.
+    // The scores were just inserted, so their player and game ids are cached.
+    public void addToTransaction(Connection conn, List<GameScore> scores) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(UPSERT_SQL)) {
+            for (GameScore score : scores) {
+                pstmt.setInt(1, dimensions.cached(ScoreDimensions.Kind.PLAYER, score.getPlayerName()));
+                pstmt.setInt(2, dimensions.cached(ScoreDimensions.Kind.GAME, score.getGameName()));
+                pstmt.setInt(3, score.getScore());
+                pstmt.setInt(4, score.getScore());
+                pstmt.setInt(5, score.isWon() ? 1 : 0);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    // Commit the writer's transaction and apply the same scores to the mirror
+    public void commit(Connection conn, List<GameScore> scores) throws SQLException {
+        synchronized (commitLock) {
+            conn.commit();
+            for (GameScore score : scores) {
+                Totals totals = mirror.get(key(score.getPlayerName(), score.getGameName()));
+                if (totals != null) {
+                    totals.add(score.getScore(), score.isWon());
+                }
+            }
+        }
+    }
+
+    public PlayerStats getPlayerStats(String playerName, String gameName) throws SQLException {
+        String key = key(playerName, gameName);
+        Totals totals = mirror.get(key);
+        if (totals == null) {
+            synchronized (commitLock) {
+                totals = mirror.get(key);
+                if (totals == null) {
+                    totals = load(playerName, gameName);
+                    mirror.put(key, totals);
+                }
+            }
+        }
+        return totals.toPlayerStats(playerName, gameName);
+    }
+
+    // Every game the account has played; playerName only labels the results
+    public List<PlayerStats> getAccountStats(int userId, String playerName) throws SQLException {
+        String sql = "SELECT g.game_name, r.games_played, r.best_score, r.total_score, r.wins " +
+                "FROM player_game_stats r JOIN games g ON g.game_id = r.game_id WHERE r.user_id = ?";
+
+        List<PlayerStats> stats = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection("getAllPlayerStats");
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, userId);
+
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                Totals totals = new Totals();
+                totals.gamesPlayed = rs.getInt("games_played");
+                totals.bestScore = rs.getInt("best_score");
+                totals.totalScore = rs.getLong("total_score");
+                totals.wins = rs.getInt("wins");
+                stats.add(totals.toPlayerStats(playerName, rs.getString("game_name")));
+            }
+        }
+        return stats;
+    }
+
+    // Zero totals for a player without an account or a game nobody has played yet
+    private Totals load(String playerName, String gameName) throws SQLException {
+        Totals totals = new Totals();
+        Integer userId = dimensions.find(ScoreDimensions.Kind.PLAYER, playerName);
+        Integer gameId = dimensions.find(ScoreDimensions.Kind.GAME, gameName);
+        if (userId == null || gameId == null) {
+            return totals;
+        }
+        String sql = "SELECT games_played, best_score, total_score, wins FROM player_game_stats " +
+                "WHERE user_id = ? AND game_id = ?";
+
+        try (Connection conn = dataSource.getConnection("getPlayerStats");
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, userId);
+            pstmt.setInt(2, gameId);
+
+            ResultSet rs = pstmt.executeQuery();
+            if (rs.next()) {
+                totals.gamesPlayed = rs.getInt("games_played");
+                totals.bestScore = rs.getInt("best_score");
+                totals.totalScore = rs.getLong("total_score");
+                totals.wins = rs.getInt("wins");
+            }
+        }
+        return totals;
+    }
+
+    private static String key(String playerName, String gameName) {
+        return playerName + '\u0000' + gameName;
+    }
+
+    // Running totals for one (player, game); also used by the embedded store
+    static class Totals {
+        int gamesPlayed;
+        int bestScore;
+        long totalScore;
+        int wins;
+
+        synchronized void add(int score, boolean won) {
+            bestScore = gamesPlayed == 0 ? score : Math.max(bestScore, score);
+            gamesPlayed++;
+            totalScore += score;
+            if (won) {
+                wins++;
+            }
+        }
+
+        synchronized PlayerStats toPlayerStats(String playerName, String gameName) {
+            return new PlayerStats(playerName, gameName, gamesPlayed, bestScore, totalScore, wins);
+        }
+    }
+}
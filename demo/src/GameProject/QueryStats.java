@@ -0,0 +1,185 @@
+package GameProject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Per-query timings for the MySQL repositories, keyed by the name passed to
+// ConnectionPool.getConnection(name). Each query keeps histograms of
+// execution time, rows returned or changed, and time spent waiting for a
+// pooled connection, in the same log-linear buckets as ScoreHistograms.
+//
+// Statements slower than -Ddb.slowQueryMillis (default 500) are appended to
+// slow-queries.log with string bind values redacted; report() is written to
+// query-stats.txt by dump().
+class QueryStats {
+    private static final long SLOW_QUERY_NANOS = Long.getLong("db.slowQueryMillis", 500) * 1_000_000L;
+    private static final int MAX_LOGGED_SQL = 500;
+
+    private final Map<String, Query> queries = new ConcurrentHashMap<>();
+    private final Path slowLog;
+    private final Path dumpFile;
+
+    public QueryStats(Path slowLog, Path dumpFile) {
+        this.slowLog = slowLog;
+        this.dumpFile = dumpFile;
+    }
+
+    private Query query(String name) {
+        return queries.computeIfAbsent(name, k -> new Query());
+    }
+
+    public void recordWait(String name, long nanos) {
+        query(name).poolWaitMicros.add(nanos / 1000);
+    }
+
+    public void recordExecution(String name, long nanos, boolean failed) {
+        Query query = query(name);
+        query.latencyMicros.add(nanos / 1000);
+        if (failed) {
+            query.errors.increment();
+        }
+    }
+
+    public void recordRows(String name, long rows) {
+        query(name).rows.add(rows);
+    }
+
+    public boolean isSlow(long nanos) {
+        return nanos >= SLOW_QUERY_NANOS;
+    }
+
+    // binds: parameter index -> value; only numbers, booleans, dates and
+    // nulls are written out, everything else as '?'
+    public void logSlow(String name, String sql, Map<Integer, Object> binds, int batchSize, long nanos) {
+        query(name).slow.increment();
+
+        StringBuilder line = new StringBuilder()
+                .append(new Timestamp(System.currentTimeMillis())).append('\t')
+                .append(name).append('\t')
+                .append(nanos / 1_000_000).append(" ms\t");
+        if (batchSize > 1) {
+            line.append("batch of ").append(batchSize).append('\t');
+        }
+        String text = sql == null ? "?" : sql.replaceAll("\\s+", " ");
+        line.append(text.length() > MAX_LOGGED_SQL ? text.substring(0, MAX_LOGGED_SQL) + "..." : text);
+        line.append("\tbinds=[");
+        boolean first = true;
+        for (Map.Entry<Integer, Object> bind : binds.entrySet()) {
+            if (!first) {
+                line.append(", ");
+            }
+            first = false;
+            line.append(bind.getKey()).append('=').append(redact(bind.getValue()));
+        }
+        line.append("]\n");
+
+        System.err.println("Slow query: " + name + " took " + nanos / 1_000_000 + " ms");
+        synchronized (this) {
+            try {
+                Files.createDirectories(slowLog.toAbsolutePath().getParent());
+                Files.write(slowLog, line.toString().getBytes(StandardCharsets.UTF_8),
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                System.err.println("Error writing slow query log: " + e.getMessage());
+            }
+        }
+    }
+
+    // Usernames, password hashes and emails are all strings, so no string is logged
+    private static String redact(Object value) {
+        if (value == null || value instanceof Number || value instanceof Boolean
+                || value instanceof java.util.Date) {
+            return String.valueOf(value);
+        }
+        return "'?'";
+    }
+
+    // One line per query, slowest p99 first
+    public String report() {
+        StringBuilder text = new StringBuilder("Query stats at ")
+                .append(new Timestamp(System.currentTimeMillis())).append('\n')
+                .append(String.format("%-22s %8s %6s %6s %9s %9s %9s %9s %9s %8s %8s%n",
+                        "query", "count", "errors", "slow", "p50 ms", "p95 ms", "p99 ms", "max ms",
+                        "wait p99", "rows p50", "rows max"));
+        queries.entrySet().stream()
+                .sorted((a, b) -> Long.compare(b.getValue().latencyMicros.percentile(99),
+                        a.getValue().latencyMicros.percentile(99)))
+                .forEach(entry -> {
+                    Query query = entry.getValue();
+                    text.append(String.format("%-22s %8d %6d %6d %9.2f %9.2f %9.2f %9.2f %9.2f %8d %8d%n",
+                            entry.getKey(), query.latencyMicros.count(), query.errors.sum(), query.slow.sum(),
+                            query.latencyMicros.percentile(50) / 1000.0,
+                            query.latencyMicros.percentile(95) / 1000.0,
+                            query.latencyMicros.percentile(99) / 1000.0,
+                            query.latencyMicros.max() / 1000.0,
+                            query.poolWaitMicros.percentile(99) / 1000.0,
+                            query.rows.percentile(50), query.rows.max()));
+                });
+        return text.toString();
+    }
+
+    // Replace query-stats.txt with the current report
+    public void dump() {
+        try {
+            Files.createDirectories(dumpFile.toAbsolutePath().getParent());
+            Path tmp = dumpFile.resolveSibling(dumpFile.getFileName() + ".tmp");
+            Files.write(tmp, report().getBytes(StandardCharsets.UTF_8));
+            Files.move(tmp, dumpFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Error writing query stats: " + e.getMessage());
+        }
+    }
+
+    private static class Query {
+        final Histogram latencyMicros = new Histogram();
+        final Histogram poolWaitMicros = new Histogram();
+        final Histogram rows = new Histogram();
+        final LongAdder errors = new LongAdder();
+        final LongAdder slow = new LongAdder();
+    }
+
+    // Counts per ScoreHistograms bucket; percentiles report the bucket's lower bound
+    private static class Histogram {
+        private final long[] counts = new long[ScoreHistograms.BUCKETS];
+        private long total;
+        private long max;
+
+        synchronized void add(long value) {
+            int clamped = (int) Math.min(Math.max(value, 0), Integer.MAX_VALUE);
+            counts[ScoreHistograms.bucketOf(clamped)]++;
+            total++;
+            max = Math.max(max, clamped);
+        }
+
+        synchronized long count() {
+            return total;
+        }
+
+        synchronized long max() {
+            return max;
+        }
+
+        synchronized long percentile(double percent) {
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(total * percent / 100);
+            long seen = 0;
+            for (int bucket = 0; bucket < counts.length; bucket++) {
+                seen += counts[bucket];
+                if (seen >= rank) {
+                    return Math.min(ScoreHistograms.lowerBound(bucket), max);
+                }
+            }
+            return max;
+        }
+    }
+}
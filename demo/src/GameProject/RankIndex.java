@@ -0,0 +1,195 @@
+package GameProject;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Player rankings per (game, mode), ranked by each player's best score.
+// A Fenwick tree over score values counts players per best score, so a rank
+// is one prefix sum; a sorted set of the same entries gives the neighbours
+// for "around me". Both are O(log n) per lookup and per update.
+// Players with the same best score share a rank.
+class RankIndex {
+    // Scores above this are counted as this; the tree grows to it on demand
+    private static final int MAX_SCORE = (1 << 22) - 1;
+    private static final int INITIAL_SCORES = 1024;
+
+    private final Map<String, Board> boards = new ConcurrentHashMap<>();
+    private final long ttlMillis;
+
+    // ttlMillis <= 0 keeps boards until the process exits
+    public RankIndex(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+    }
+
+    // False if the board needs loading (or reloading) before it can answer
+    public boolean isLoaded(String gameName, String gameMode) {
+        Board board = boards.get(key(gameName, gameMode));
+        return board != null && board.complete && !board.isExpired(ttlMillis);
+    }
+
+    // True if a full board is held, even one past its TTL
+    public boolean isCached(String gameName, String gameMode) {
+        Board board = boards.get(key(gameName, gameMode));
+        return board != null && board.complete;
+    }
+
+    // Install every player's best score, keeping anything added meanwhile
+    public void load(String gameName, String gameMode, Map<String, Integer> bestScores) {
+        Board fresh = new Board(true);
+        bestScores.forEach(fresh::offer);
+        Board previous = boards.put(key(gameName, gameMode), fresh);
+        if (previous != null) {
+            previous.bests().forEach(fresh::offer);
+        }
+    }
+
+    // Called for every committed score
+    public void add(GameScore score) {
+        boards.computeIfAbsent(key(score.getGameName(), score.getGameMode()), k -> new Board(false))
+                .offer(score.getPlayerName(), score.getScore());
+    }
+
+    // 1 for the top player, 0 if the player has no score on this board
+    public int rank(String playerName, String gameName, String gameMode) {
+        Board board = boards.get(key(gameName, gameMode));
+        return board != null ? board.rank(playerName) : 0;
+    }
+
+    public int playerCount(String gameName, String gameMode) {
+        Board board = boards.get(key(gameName, gameMode));
+        return board != null ? board.size() : 0;
+    }
+
+    // Up to k players either side of the given one, best first, the player included
+    public List<RankedPlayer> around(String playerName, String gameName, String gameMode, int k) {
+        Board board = boards.get(key(gameName, gameMode));
+        return board != null ? board.around(playerName, k) : new ArrayList<>();
+    }
+
+    private static String key(String gameName, String gameMode) {
+        return gameName + '\u0000' + gameMode;
+    }
+
+    private static final class Entry {
+        final String playerName;
+        final int score;
+
+        Entry(String playerName, int score) {
+            this.playerName = playerName;
+            this.score = score;
+        }
+    }
+
+    // Best score first, then by name so every player has a distinct position
+    private static final Comparator<Entry> ORDER = Comparator
+            .comparingInt((Entry e) -> e.score).reversed()
+            .thenComparing(e -> e.playerName);
+
+    private static class Board {
+        private final Map<String, Entry> best = new HashMap<>();
+        private final TreeSet<Entry> order = new TreeSet<>(ORDER);
+        private final long loadedAt = System.currentTimeMillis();
+        private final boolean complete;
+        // tree[i] covers scores (i - lowbit(i), i - 1]; index = score + 1
+        private int[] tree = new int[INITIAL_SCORES + 1];
+
+        Board(boolean complete) {
+            this.complete = complete;
+        }
+
+        // Keep the higher of the stored and offered score
+        synchronized void offer(String playerName, int score) {
+            int clamped = Math.max(0, Math.min(score, MAX_SCORE));
+            Entry current = best.get(playerName);
+            if (current != null) {
+                if (current.score >= clamped) {
+                    return;
+                }
+                best.remove(playerName);
+                order.remove(current);
+                update(current.score, -1);
+            }
+
+            if (clamped + 1 >= tree.length) {
+                grow(clamped);
+            }
+            Entry entry = new Entry(playerName, clamped);
+            best.put(playerName, entry);
+            order.add(entry);
+            update(clamped, 1);
+        }
+
+        synchronized Map<String, Integer> bests() {
+            Map<String, Integer> result = new HashMap<>();
+            best.forEach((name, entry) -> result.put(name, entry.score));
+            return result;
+        }
+
+        synchronized int size() {
+            return best.size();
+        }
+
+        synchronized int rank(String playerName) {
+            Entry entry = best.get(playerName);
+            return entry != null ? rankOf(entry.score) : 0;
+        }
+
+        synchronized List<RankedPlayer> around(String playerName, int k) {
+            List<RankedPlayer> result = new ArrayList<>();
+            Entry me = best.get(playerName);
+            if (me == null) {
+                return result;
+            }
+
+            Iterator<Entry> above = order.headSet(me, false).descendingIterator();
+            for (int i = 0; i < k && above.hasNext(); i++) {
+                result.add(0, ranked(above.next()));
+            }
+            result.add(ranked(me));
+            Iterator<Entry> below = order.tailSet(me, false).iterator();
+            for (int i = 0; i < k && below.hasNext(); i++) {
+                result.add(ranked(below.next()));
+            }
+            return result;
+        }
+
+        private RankedPlayer ranked(Entry entry) {
+            return new RankedPlayer(rankOf(entry.score), entry.playerName, entry.score);
+        }
+
+        // 1 + players with a strictly higher best score
+        private int rankOf(int score) {
+            return 1 + best.size() - countAtMost(score);
+        }
+
+        private int countAtMost(int score) {
+            int count = 0;
+            for (int i = Math.min(score + 1, tree.length - 1); i > 0; i -= i & -i) {
+                count += tree[i];
+            }
+            return count;
+        }
+
+        private void update(int score, int delta) {
+            for (int i = score + 1; i < tree.length; i += i & -i) {
+                tree[i] += delta;
+            }
+        }
+
+        // Double until the score fits, then rebuild from the entries
+        private void grow(int score) {
+            int size = tree.length - 1;
+            while (size <= score) {
+                size *= 2;
+            }
+            tree = new int[size + 1];
+            for (Entry entry : best.values()) {
+                update(entry.score, 1);
+            }
+        }
+
+        boolean isExpired(long ttlMillis) {
+            return ttlMillis > 0 && System.currentTimeMillis() - loadedAt > ttlMillis;
+        }
+    }
+}
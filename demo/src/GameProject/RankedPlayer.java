@@ -0,0 +1,23 @@
+package GameProject;
+
+// RankedPlayer data class
+class RankedPlayer {
+    private int rank;
+    private String playerName;
+    private int bestScore;
+
+    public RankedPlayer(int rank, String playerName, int bestScore) {
+        this.rank = rank;
+        this.playerName = playerName;
+        this.bestScore = bestScore;
+    }
+
+    public int getRank() { return rank; }
+    public String getPlayerName() { return playerName; }
+    public int getBestScore() { return bestScore; }
+
+    @Override
+    public String toString() {
+        return String.format("#%d %s: %d", rank, playerName, bestScore);
+    }
+}
@@ -0,0 +1,57 @@
+package GameProject;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Token bucket per key (username, or address for guests). Each key starts
+// with `burst` tokens and regains `perSecond` tokens a second; a call that
+// finds no token left is refused.
+class RateLimiter {
+    private final int burst;
+    private final double perSecond;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    public RateLimiter(int burst, double perSecond) {
+        this.burst = burst;
+        this.perSecond = perSecond;
+    }
+
+    public boolean tryAcquire(String key) {
+        Bucket bucket = buckets.computeIfAbsent(key, k -> new Bucket(burst));
+        boolean allowed = bucket.tryTake(burst, perSecond);
+        // Full buckets carry no state, so idle keys don't pile up
+        if (buckets.size() > 10_000) {
+            buckets.values().removeIf(b -> b.isFull(burst, perSecond));
+        }
+        return allowed;
+    }
+
+    private static class Bucket {
+        private double tokens;
+        private long updatedAt = System.nanoTime();
+
+        Bucket(int tokens) {
+            this.tokens = tokens;
+        }
+
+        synchronized boolean tryTake(int burst, double perSecond) {
+            refill(burst, perSecond);
+            if (tokens < 1) {
+                return false;
+            }
+            tokens--;
+            return true;
+        }
+
+        synchronized boolean isFull(int burst, double perSecond) {
+            refill(burst, perSecond);
+            return tokens >= burst;
+        }
+
+        private void refill(int burst, double perSecond) {
+            long now = System.nanoTime();
+            tokens = Math.min(burst, tokens + (now - updatedAt) / 1e9 * perSecond);
+            updatedAt = now;
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package GameProject;
+
+import java.sql.*;
+import java.util.List;
+
+// Ordered schema changes for the game_hub database.
+// Each applied version is recorded in schema_version, so startup only runs
+// scripts this database hasn't seen. Add new steps to the end of MIGRATIONS;
+// never edit one that has shipped.
+class SchemaMigrations {
+    private static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "users table",
+                    "CREATE TABLE IF NOT EXISTS users (" +
+                            "user_id INT PRIMARY KEY AUTO_INCREMENT," +
+                            "username VARCHAR(50) UNIQUE NOT NULL," +
+                            "password_hash VARCHAR(64) NOT NULL," +
+                            "email VARCHAR(100)," +
+                            "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
+                            "last_login TIMESTAMP," +
+                            "INDEX idx_username (username))"),
+            new Migration(2, "game_scores table",
+                    "CREATE TABLE IF NOT EXISTS game_scores (" +
+                            "score_id INT PRIMARY KEY AUTO_INCREMENT," +
+                            "game_name VARCHAR(50) NOT NULL," +
+                            "player_name VARCHAR(50) NOT NULL," +
+                            "score INT NOT NULL," +
+                            "game_mode VARCHAR(20)," +
+                            "difficulty VARCHAR(20)," +
+                            "play_time INT," +
+                            "won BOOLEAN DEFAULT FALSE," +
+                            "played_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)"),
+            new Migration(3, "player_game_stats rollup",
+                    "CREATE TABLE IF NOT EXISTS player_game_stats (" +
+                            "player_name VARCHAR(50) NOT NULL," +
+                            "game_name VARCHAR(50) NOT NULL," +
+                            "games_played INT NOT NULL DEFAULT 0," +
+                            "best_score INT NOT NULL DEFAULT 0," +
+                            "total_score BIGINT NOT NULL DEFAULT 0," +
+                            "wins INT NOT NULL DEFAULT 0," +
+                            "PRIMARY KEY (player_name, game_name))",
+                    "INSERT IGNORE INTO player_game_stats " +
+                            "(player_name, game_name, games_played, best_score, total_score, wins) " +
+                            "SELECT player_name, game_name, COUNT(*), MAX(score), SUM(score), " +
+                            "SUM(CASE WHEN won = TRUE THEN 1 ELSE 0 END) " +
+                            "FROM game_scores GROUP BY player_name, game_name"),
+            // getTopScores: WHERE game_name = ? AND game_mode = ? ORDER BY score DESC, played_at DESC
+            new Migration(4, "leaderboard index",
+                    "CREATE INDEX idx_scores_leaderboard ON game_scores " +
+                            "(game_name, game_mode, score DESC, played_at DESC)"),
+            // getPlayerScores: WHERE player_name = ? ORDER BY played_at DESC
+            new Migration(5, "player history index",
+                    "CREATE INDEX idx_scores_player_history ON game_scores " +
+                            "(player_name, played_at DESC)"),
+            // Keyset history pages order by (played_at, score_id), so the tiebreak belongs in the index
+            new Migration(6, "player history keyset index",
+                    "CREATE INDEX idx_scores_player_keyset ON game_scores " +
+                            "(player_name, played_at DESC, score_id DESC)",
+                    "DROP INDEX idx_scores_player_history ON game_scores"),
+            // Daily leaderboard buckets: WHERE game_name = ? AND game_mode = ? AND played_at in one day
+            new Migration(7, "leaderboard time range index",
+                    "CREATE INDEX idx_scores_recent ON game_scores (game_name, game_mode, played_at)"),
+            // Salted PBKDF2 hashes ("pbkdf2$iterations$salt$hash") are longer than SHA-256 hex
+            new Migration(8, "longer password hashes",
+                    "ALTER TABLE users MODIFY password_hash VARCHAR(255) NOT NULL"),
+            // Per-game Elo ratings, updated by the game servers with each rated match
+            new Migration(9, "player ratings",
+                    "CREATE TABLE IF NOT EXISTS player_ratings (" +
+                            "player_name VARCHAR(50) NOT NULL," +
+                            "game_name VARCHAR(50) NOT NULL," +
+                            "rating INT NOT NULL DEFAULT 1200," +
+                            "games_rated INT NOT NULL DEFAULT 0," +
+                            "PRIMARY KEY (player_name, game_name))"),
+            // Idempotency key for scores replayed from a client's local spool
+            new Migration(10, "score event ids",
+                    "ALTER TABLE game_scores ADD COLUMN event_id CHAR(36) NULL",
+                    "CREATE UNIQUE INDEX uq_scores_event ON game_scores (event_id)"),
+            // Dictionary ids for the repeated names, and the account behind each score.
+            // 13 moves the remaining queries onto them.
+            new Migration(11, "score dimension ids",
+                    "CREATE TABLE IF NOT EXISTS games (" +
+                            "game_id SMALLINT UNSIGNED PRIMARY KEY AUTO_INCREMENT," +
+                            "game_name VARCHAR(50) NOT NULL UNIQUE)",
+                    "CREATE TABLE IF NOT EXISTS game_modes (" +
+                            "mode_id SMALLINT UNSIGNED PRIMARY KEY AUTO_INCREMENT," +
+                            "game_mode VARCHAR(20) NOT NULL UNIQUE)",
+                    "CREATE TABLE IF NOT EXISTS difficulties (" +
+                            "difficulty_id SMALLINT UNSIGNED PRIMARY KEY AUTO_INCREMENT," +
+                            "difficulty VARCHAR(20) NOT NULL UNIQUE)",
+                    "ALTER TABLE game_scores " +
+                            "ADD COLUMN game_id SMALLINT UNSIGNED NULL, " +
+                            "ADD COLUMN mode_id SMALLINT UNSIGNED NULL, " +
+                            "ADD COLUMN difficulty_id SMALLINT UNSIGNED NULL, " +
+                            "ADD COLUMN user_id INT NULL",
+                    "INSERT IGNORE INTO games (game_name) SELECT DISTINCT game_name FROM game_scores",
+                    "INSERT IGNORE INTO game_modes (game_mode) " +
+                            "SELECT DISTINCT game_mode FROM game_scores WHERE game_mode IS NOT NULL",
+                    "INSERT IGNORE INTO difficulties (difficulty) " +
+                            "SELECT DISTINCT difficulty FROM game_scores WHERE difficulty IS NOT NULL",
+                    "UPDATE game_scores s JOIN games g ON g.game_name = s.game_name SET s.game_id = g.game_id",
+                    "UPDATE game_scores s JOIN game_modes m ON m.game_mode = s.game_mode SET s.mode_id = m.mode_id",
+                    "UPDATE game_scores s JOIN difficulties d ON d.difficulty = s.difficulty " +
+                            "SET s.difficulty_id = d.difficulty_id",
+                    "UPDATE game_scores s JOIN users u ON u.username = s.player_name SET s.user_id = u.user_id",
+                    "ALTER TABLE game_scores ADD CONSTRAINT fk_scores_user " +
+                            "FOREIGN KEY (user_id) REFERENCES users (user_id)"),
+            // getTopScores and the daily buckets on 2-byte ids instead of two VARCHARs
+            new Migration(12, "leaderboard indexes on dimension ids",
+                    "CREATE INDEX idx_scores_leaderboard_ids ON game_scores " +
+                            "(game_id, mode_id, score DESC, played_at DESC)",
+                    "CREATE INDEX idx_scores_recent_ids ON game_scores (game_id, mode_id, played_at)",
+                    "DROP INDEX idx_scores_leaderboard ON game_scores",
+                    "DROP INDEX idx_scores_recent ON game_scores"),
+            // History, the stats rollup and ratings on user_id and game_id. Rows
+            // written without ids since 11 are backfilled; rows whose player has
+            // no account can't get a user_id, so they move to game_scores_unlinked.
+            // The rollup is rebuilt from the remaining rows. 14 then drops the names.
+            new Migration(13, "scores keyed by user and game ids",
+                    "INSERT IGNORE INTO games (game_name) " +
+                            "SELECT DISTINCT game_name FROM game_scores WHERE game_id IS NULL",
+                    "INSERT IGNORE INTO game_modes (game_mode) " +
+                            "SELECT DISTINCT game_mode FROM game_scores WHERE mode_id IS NULL AND game_mode IS NOT NULL",
+                    "INSERT IGNORE INTO difficulties (difficulty) SELECT DISTINCT difficulty FROM game_scores " +
+                            "WHERE difficulty_id IS NULL AND difficulty IS NOT NULL",
+                    "UPDATE game_scores s JOIN games g ON g.game_name = s.game_name " +
+                            "SET s.game_id = g.game_id WHERE s.game_id IS NULL",
+                    "UPDATE game_scores s JOIN game_modes m ON m.game_mode = s.game_mode " +
+                            "SET s.mode_id = m.mode_id WHERE s.mode_id IS NULL",
+                    "UPDATE game_scores s JOIN difficulties d ON d.difficulty = s.difficulty " +
+                            "SET s.difficulty_id = d.difficulty_id WHERE s.difficulty_id IS NULL",
+                    "UPDATE game_scores s JOIN users u ON u.username = s.player_name " +
+                            "SET s.user_id = u.user_id WHERE s.user_id IS NULL",
+                    "CREATE TABLE IF NOT EXISTS game_scores_unlinked LIKE game_scores",
+                    "INSERT IGNORE INTO game_scores_unlinked SELECT * FROM game_scores " +
+                            "WHERE user_id IS NULL OR game_id IS NULL",
+                    "DELETE FROM game_scores WHERE user_id IS NULL OR game_id IS NULL",
+                    "ALTER TABLE game_scores " +
+                            "MODIFY game_id SMALLINT UNSIGNED NOT NULL, " +
+                            "MODIFY user_id INT NOT NULL, " +
+                            "ADD CONSTRAINT fk_scores_game FOREIGN KEY (game_id) REFERENCES games (game_id)",
+                    "CREATE INDEX idx_scores_user_history ON game_scores " +
+                            "(user_id, played_at DESC, score_id DESC)",
+                    "DROP INDEX idx_scores_player_keyset ON game_scores",
+                    "CREATE TABLE IF NOT EXISTS player_game_stats_by_id (" +
+                            "user_id INT NOT NULL," +
+                            "game_id SMALLINT UNSIGNED NOT NULL," +
+                            "games_played INT NOT NULL DEFAULT 0," +
+                            "best_score INT NOT NULL DEFAULT 0," +
+                            "total_score BIGINT NOT NULL DEFAULT 0," +
+                            "wins INT NOT NULL DEFAULT 0," +
+                            "PRIMARY KEY (user_id, game_id)," +
+                            "FOREIGN KEY (user_id) REFERENCES users (user_id)," +
+                            "FOREIGN KEY (game_id) REFERENCES games (game_id))",
+                    "INSERT IGNORE INTO player_game_stats_by_id " +
+                            "(user_id, game_id, games_played, best_score, total_score, wins) " +
+                            "SELECT user_id, game_id, COUNT(*), MAX(score), SUM(score), " +
+                            "SUM(CASE WHEN won = TRUE THEN 1 ELSE 0 END) " +
+                            "FROM game_scores GROUP BY user_id, game_id",
+                    "DROP TABLE player_game_stats",
+                    "RENAME TABLE player_game_stats_by_id TO player_game_stats",
+                    "INSERT IGNORE INTO games (game_name) SELECT DISTINCT game_name FROM player_ratings",
+                    "CREATE TABLE IF NOT EXISTS player_ratings_by_id (" +
+                            "user_id INT NOT NULL," +
+                            "game_id SMALLINT UNSIGNED NOT NULL," +
+                            "rating INT NOT NULL DEFAULT 1200," +
+                            "games_rated INT NOT NULL DEFAULT 0," +
+                            "PRIMARY KEY (user_id, game_id)," +
+                            "FOREIGN KEY (user_id) REFERENCES users (user_id)," +
+                            "FOREIGN KEY (game_id) REFERENCES games (game_id))",
+                    "INSERT IGNORE INTO player_ratings_by_id (user_id, game_id, rating, games_rated) " +
+                            "SELECT u.user_id, g.game_id, r.rating, r.games_rated FROM player_ratings r " +
+                            "JOIN users u ON u.username = r.player_name JOIN games g ON g.game_name = r.game_name",
+                    "DROP TABLE player_ratings",
+                    "RENAME TABLE player_ratings_by_id TO player_ratings"),
+            // Nothing reads or writes the names on game_scores after 13; clients
+            // from before it can no longer store scores once this has run
+            new Migration(14, "drop score name columns",
+                    "ALTER TABLE game_scores " +
+                            "DROP COLUMN game_name, " +
+                            "DROP COLUMN player_name, " +
+                            "DROP COLUMN game_mode, " +
+                            "DROP COLUMN difficulty")
+    );
+
+    private static boolean migrated = false;
+
+    private SchemaMigrations() {
+    }
+
+    // Bring the schema up to date; later calls in the same process do nothing
+    public static synchronized void migrate(ConnectionPool dataSource) {
+        if (migrated) {
+            return;
+        }
+
+        try (Connection conn = dataSource.getConnection("migrate");
+             Statement stmt = conn.createStatement()) {
+            // GET_LOCK waits up to 30 s and DDL can take a while, so no pool query timeout here
+            stmt.setQueryTimeout(0);
+            stmt.execute("CREATE TABLE IF NOT EXISTS schema_version (" +
+                    "version INT PRIMARY KEY," +
+                    "description VARCHAR(100) NOT NULL," +
+                    "applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+
+            // Two clients starting together must not both apply the same step
+            try (ResultSet rs = stmt.executeQuery("SELECT GET_LOCK('game_hub_migrations', 30)")) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    System.err.println("Could not lock schema for migration");
+                    return;
+                }
+            }
+
+            try {
+                int current = currentVersion(stmt);
+                for (Migration migration : MIGRATIONS) {
+                    if (migration.version > current) {
+                        apply(conn, migration);
+                    }
+                }
+                migrated = true;
+            } finally {
+                stmt.execute("DO RELEASE_LOCK('game_hub_migrations')");
+            }
+        } catch (SQLException e) {
+            System.err.println("Schema migration failed: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private static int currentVersion(Statement stmt) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    // MySQL commits DDL implicitly, so a step that fails halfway is not rolled
+    // back; its version is only recorded once every statement has succeeded
+    private static void apply(Connection conn, Migration migration) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.setQueryTimeout(0);
+            for (String sql : migration.statements) {
+                stmt.execute(sql);
+            }
+        }
+
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "INSERT INTO schema_version (version, description) VALUES (?, ?)")) {
+            pstmt.setInt(1, migration.version);
+            pstmt.setString(2, migration.description);
+            pstmt.executeUpdate();
+        }
+        System.out.println("Applied schema migration " + migration.version + ": " + migration.description);
+    }
+
+    private static class Migration {
+        final int version;
+        final String description;
+        final String[] statements;
+
+        Migration(int version, String description, String... statements) {
+            this.version = version;
+            this.description = description;
+            this.statements = statements;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package GameProject;
+
+import java.sql.*;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Small integer ids for the game, mode and difficulty names of scores
+// (the games, game_modes and difficulties tables, see SchemaMigrations),
+// plus player name -> users.user_id. game_scores, player_game_stats and
+// player_ratings filter, group and index on the ids instead of the VARCHARs.
+//
+// Ids never change once assigned, so every lookup after the first is a map
+// read. A name this process hasn't seen is looked up in its table, since
+// another client may already have added it; new names are inserted on
+// their own connection before the score transaction starts, so a rolled
+// back batch can't leave an id in the cache that isn't in the table.
+// Players are only looked up: accounts are created by registration, and
+// scores for a name without one are not stored.
+class ScoreDimensions {
+    enum Kind {
+        GAME("games", "game_id", "game_name"),
+        MODE("game_modes", "mode_id", "game_mode"),
+        DIFFICULTY("difficulties", "difficulty_id", "difficulty"),
+        PLAYER("users", "user_id", "username");
+
+        final String table;
+        final String idColumn;
+        final String nameColumn;
+
+        Kind(String table, String idColumn, String nameColumn) {
+            this.table = table;
+            this.idColumn = idColumn;
+            this.nameColumn = nameColumn;
+        }
+    }
+
+    private final ConnectionPool dataSource;
+    private final Map<Kind, Map<String, Integer>> ids = new ConcurrentHashMap<>();
+
+    public ScoreDimensions(ConnectionPool dataSource) {
+        this.dataSource = dataSource;
+        for (Kind kind : Kind.values()) {
+            ids.put(kind, new ConcurrentHashMap<>());
+        }
+    }
+
+    // Give every name in the batch an id, adding any that are new
+    public void prepare(List<GameScore> scores) throws SQLException {
+        for (GameScore score : scores) {
+            idOf(Kind.GAME, score.getGameName());
+            idOf(Kind.MODE, score.getGameMode());
+            idOf(Kind.DIFFICULTY, score.getDifficulty());
+            find(Kind.PLAYER, score.getPlayerName());
+        }
+    }
+
+    // Id of a name prepare() has seen; null for a null name or a player without an account
+    public Integer cached(Kind kind, String name) {
+        return name != null ? ids.get(kind).get(name) : null;
+    }
+
+    // Id of a stored name, or null if no score has used it yet
+    public Integer find(Kind kind, String name) throws SQLException {
+        if (name == null) {
+            return null;
+        }
+        Integer id = ids.get(kind).get(name);
+        if (id != null) {
+            return id;
+        }
+
+        try (Connection conn = dataSource.getConnection("scoreDimensions")) {
+            return select(conn, kind, name);
+        }
+    }
+
+    private Integer idOf(Kind kind, String name) throws SQLException {
+        Integer id = find(kind, name);
+        if (id != null || name == null) {
+            return id;
+        }
+
+        try (Connection conn = dataSource.getConnection("scoreDimensions");
+             PreparedStatement pstmt = conn.prepareStatement(
+                     "INSERT IGNORE INTO " + kind.table + " (" + kind.nameColumn + ") VALUES (?)")) {
+            pstmt.setString(1, name);
+            pstmt.executeUpdate();
+
+            id = select(conn, kind, name);
+            if (id == null) {
+                throw new SQLException("No " + kind.idColumn + " for " + name);
+            }
+            return id;
+        }
+    }
+
+    private Integer select(Connection conn, Kind kind, String name) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT " + kind.idColumn + " FROM " + kind.table + " WHERE " + kind.nameColumn + " = ?")) {
+            pstmt.setString(1, name);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                int id = rs.getInt(1);
+                ids.get(kind).put(name, id);
+                return id;
+            }
+        }
+    }
+}
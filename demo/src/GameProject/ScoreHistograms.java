@@ -0,0 +1,215 @@
+package GameProject;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Score distribution per (game, mode, difficulty), for "better than N% of
+// players" on the end screens.
+//
+// Each histogram is a fixed array of log-linear buckets: scores below
+// SUB_BUCKETS get one bucket each, and every power of two above that is split
+// into SUB_BUCKETS equal buckets, so a percentile is off by at most
+// 1 / SUB_BUCKETS of the score and memory doesn't grow with the number of rows.
+//
+// The histograms are saved to a snapshot file every SNAPSHOT_INTERVAL_SECONDS
+// and on close. Without a snapshot they are rebuilt from the score store once.
+// In MySQL mode the snapshot is local, so scores other clients save after
+// that rebuild aren't counted.
+class ScoreHistograms implements Closeable {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Exact buckets, then SUB_BUCKETS per power of two up to 2^31
+    static final int BUCKETS = SUB_BUCKETS + (Integer.SIZE - 1 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final long SNAPSHOT_INTERVAL_SECONDS = 60;
+
+    private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private final Path snapshotFile;
+    private final ScheduledExecutorService snapshots = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "histogram-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean dirty;
+    // False if neither the snapshot nor the rebuild worked; nothing is saved
+    // then, so the next start tries the rebuild again
+    private final boolean complete;
+
+    public ScoreHistograms(Path snapshotFile, ScoreRepository repository) {
+        this.snapshotFile = snapshotFile;
+        this.complete = loadSnapshot() || rebuild(repository);
+        snapshots.scheduleWithFixedDelay(this::saveQuietly,
+                SNAPSHOT_INTERVAL_SECONDS, SNAPSHOT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    // Called for every committed score
+    public void record(GameScore score) {
+        record(score.getGameName(), score.getGameMode(), score.getDifficulty(), score.getScore(), 1);
+    }
+
+    private void record(String gameName, String gameMode, String difficulty, int score, long count) {
+        histograms.computeIfAbsent(key(gameName, gameMode, difficulty), k -> new Histogram())
+                .add(score, count);
+        dirty = true;
+    }
+
+    // Percentage of recorded scores below the given one, or -1 with no data
+    public double percentileOf(String gameName, String gameMode, String difficulty, int score) {
+        Histogram histogram = histograms.get(key(gameName, gameMode, difficulty));
+        return histogram != null ? histogram.percentBelow(score) : -1;
+    }
+
+    private static String key(String gameName, String gameMode, String difficulty) {
+        return gameName + '\u0000' + gameMode + '\u0000' + (difficulty != null ? difficulty : "");
+    }
+
+    static int bucketOf(int score) {
+        if (score < SUB_BUCKETS) {
+            return Math.max(score, 0);
+        }
+        int exponent = 31 - Integer.numberOfLeadingZeros(score);
+        int shift = exponent - SUB_BUCKET_BITS;
+        return SUB_BUCKETS + shift * SUB_BUCKETS + ((score >> shift) & (SUB_BUCKETS - 1));
+    }
+
+    static long lowerBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+        long sub = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        return (SUB_BUCKETS + sub) << shift;
+    }
+
+    private boolean rebuild(ScoreRepository repository) {
+        try {
+            repository.countScores(this::record);
+            System.out.println("Score histograms rebuilt: " + histograms.size());
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Error building score histograms: " + e.getMessage());
+            histograms.clear();
+            return false;
+        }
+    }
+
+    // Snapshot layout: version, histogram count, then per histogram the key
+    // and its non-empty buckets as (index, count) pairs
+    private boolean loadSnapshot() {
+        if (!Files.exists(snapshotFile)) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile)))) {
+            if (in.readInt() != SNAPSHOT_VERSION) {
+                return false;
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                Histogram histogram = new Histogram();
+                String key = in.readUTF();
+                for (int buckets = in.readInt(); buckets > 0; buckets--) {
+                    histogram.counts[in.readShort()] = in.readLong();
+                }
+                histogram.total = sum(histogram.counts);
+                histograms.put(key, histogram);
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ignoring unreadable score histogram snapshot: " + e.getMessage());
+            histograms.clear();
+            return false;
+        }
+    }
+
+    // Written under a temporary name, then moved over the previous snapshot
+    void save() throws IOException {
+        dirty = false;
+        Files.createDirectories(snapshotFile.toAbsolutePath().getParent());
+        Path tmp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            Map<String, long[]> copies = new HashMap<>();
+            histograms.forEach((key, histogram) -> copies.put(key, histogram.copy()));
+
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeInt(copies.size());
+            for (Map.Entry<String, long[]> entry : copies.entrySet()) {
+                long[] counts = entry.getValue();
+                out.writeUTF(entry.getKey());
+                out.writeInt((int) Arrays.stream(counts).filter(c -> c != 0).count());
+                for (int bucket = 0; bucket < counts.length; bucket++) {
+                    if (counts[bucket] != 0) {
+                        out.writeShort(bucket);
+                        out.writeLong(counts[bucket]);
+                    }
+                }
+            }
+        }
+        Files.move(tmp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void saveQuietly() {
+        if (!dirty || !complete) {
+            return;
+        }
+        try {
+            save();
+        } catch (IOException e) {
+            dirty = true;
+            System.err.println("Error saving score histograms: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        snapshots.shutdownNow();
+        dirty = true;
+        saveQuietly();
+    }
+
+    private static long sum(long[] counts) {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    private static class Histogram {
+        private final long[] counts = new long[BUCKETS];
+        private long total;
+
+        synchronized void add(int score, long count) {
+            counts[bucketOf(score)] += count;
+            total += count;
+        }
+
+        synchronized long[] copy() {
+            return counts.clone();
+        }
+
+        // Whole buckets below the score's bucket, plus a linear share of its own
+        synchronized double percentBelow(int score) {
+            if (total == 0) {
+                return -1;
+            }
+            int bucket = bucketOf(score);
+            long below = 0;
+            for (int i = 0; i < bucket; i++) {
+                below += counts[i];
+            }
+            long lower = lowerBound(bucket);
+            long width = lowerBound(bucket + 1) - lower;
+            double share = width > 1 ? (double) (Math.max(score, 0) - lower) / width : 0;
+            return 100.0 * (below + share * counts[bucket]) / total;
+        }
+    }
+}
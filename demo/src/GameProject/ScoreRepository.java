@@ -0,0 +1,63 @@
+package GameProject;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// Storage for game results. DatabaseManager layers the write-behind queue and
+// the leaderboard cache on top of whichever implementation StorageBackend picks.
+interface ScoreRepository {
+    // Store a batch of scores (ids ignored) together with their stats rollups,
+    // all or nothing. Returns the stored rows with their new ids, in order.
+    List<GameScore> saveScores(List<GameScore> scores) throws SQLException;
+
+    // Same, but eventIds.get(i) is an idempotency key for scores.get(i): rows
+    // whose key is already stored are skipped, so a batch whose outcome is
+    // unknown can be sent again. Returns only the newly stored rows.
+    List<GameScore> saveScoresOnce(List<GameScore> scores, List<String> eventIds) throws SQLException;
+
+    // Store a batch of server-reported matches: the logged-in players' score
+    // rows, their stats and rating changes, all or nothing. Returns the stored rows.
+    List<GameScore> saveMatches(List<MatchResult> matches) throws SQLException;
+
+    // Ordered by score DESC, played_at DESC
+    List<GameScore> findTopScores(String gameName, String gameMode, int limit) throws SQLException;
+
+    // Same order, limited to from <= played_at < to
+    List<GameScore> findTopScoresBetween(String gameName, String gameMode, Timestamp from, Timestamp to,
+                                         int limit) throws SQLException;
+
+    // Each player's best score on one leaderboard
+    Map<String, Integer> findBestScores(String gameName, String gameMode) throws SQLException;
+
+    // Number of rows per (game, mode, difficulty, score), for rebuilding score histograms
+    void countScores(ScoreCounter counter) throws SQLException;
+
+    // Every {game_name, game_mode} pair that has at least one score
+    List<String[]> findLeaderboards() throws SQLException;
+
+    // Totals for one game; zero counts if the player never played it
+    PlayerStats findPlayerStats(String playerName, String gameName) throws SQLException;
+
+    // Totals for every game the player has played
+    List<PlayerStats> findAllPlayerStats(String playerName) throws SQLException;
+
+    // Same, for a logged-in account. MySQL reads the rollup by user id; the
+    // embedded store, which has no account ids, by name.
+    List<PlayerStats> findAccountStats(int userId, String playerName) throws SQLException;
+
+    // Newest first, continuing after the given row (null for the first page)
+    List<GameScore> findPlayerScoresPage(String playerName, GameScore after, int pageSize) throws SQLException;
+
+    // Newest first; returns the number of rows delivered
+    int streamPlayerScores(String playerName, Consumer<GameScore> action) throws SQLException;
+
+    // Release this store's own resources; a shared connection pool stays open
+    void close();
+
+    interface ScoreCounter {
+        void add(String gameName, String gameMode, String difficulty, int score, long count);
+    }
+}
@@ -0,0 +1,292 @@
+package GameProject;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+// Append-only score log made of fixed-size, memory-mapped segment files.
+//
+// Each score is one RECORD_SIZE record; strings (game, player, mode,
+// difficulty) are stored as ids from a small dictionary in names.log. Every
+// record ends with a CRC, so on startup a segment is read until the first
+// record that doesn't check out, which also drops a write torn by a crash.
+//
+// Each run appends to a fresh segment, so earlier runs leave partly filled
+// ones behind; a background task merges those into full segments.
+class ScoreSegmentStore implements Closeable {
+    static final int RECORD_SIZE = 44;
+    private static final int PAYLOAD_SIZE = RECORD_SIZE - Integer.BYTES;
+    private static final int SEGMENT_RECORDS = 65_536;
+    private static final long SEGMENT_BYTES = (long) SEGMENT_RECORDS * RECORD_SIZE;
+    private static final long COMPACTION_INTERVAL_SECONDS = 60;
+
+    private final Path dir;
+    private final EmbeddedLog namesLog;
+    private final List<String> names = new ArrayList<>();
+    private final Map<String, Integer> nameIds = new HashMap<>();
+
+    // Sealed segments from earlier runs: segment number -> record count
+    private final TreeMap<Long, Integer> sealed = new TreeMap<>();
+    private final ScheduledExecutorService compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "score-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Highest segment number in use; the active one is opened on first append
+    private long activeSegment;
+    private FileChannel activeChannel;
+    private MappedByteBuffer active;
+    private int activeRecords;
+
+    public ScoreSegmentStore(Path dir) throws IOException {
+        this.dir = dir;
+        Files.createDirectories(dir);
+        this.namesLog = new EmbeddedLog(dir.resolve("names.log"));
+        for (String[] record : namesLog.readAll()) {
+            if (record.length == 3 && "N".equals(record[0]) && Integer.parseInt(record[1]) == names.size()) {
+                nameIds.put(record[2], names.size());
+                names.add(record[2]);
+            }
+        }
+        // Leftovers from a compaction that didn't finish
+        try (DirectoryStream<Path> tmp = Files.newDirectoryStream(dir, "scores-*.seg.tmp")) {
+            for (Path file : tmp) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    // Every stored score, each id once. Appends from this run go to a new segment.
+    public synchronized List<GameScore> loadAll() throws IOException {
+        Map<Integer, GameScore> byId = new LinkedHashMap<>();
+        long lastSegment = 0;
+        for (Path file : segmentFiles()) {
+            long segment = segmentNumber(file);
+            List<GameScore> records = readSegment(file);
+            // A crash mid-compaction can leave a row in two segments
+            for (GameScore score : records) {
+                byId.putIfAbsent(score.getScoreId(), score);
+            }
+            sealed.put(segment, records.size());
+            lastSegment = Math.max(lastSegment, segment);
+        }
+
+        activeSegment = lastSegment;
+        compactor.scheduleWithFixedDelay(this::compactQuietly,
+                COMPACTION_INTERVAL_SECONDS, COMPACTION_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        return new ArrayList<>(byId.values());
+    }
+
+    // Append a batch and force it to disk once
+    public synchronized void append(List<GameScore> scores) throws IOException {
+        for (GameScore score : scores) {
+            // Names first, so no record on disk ever points at an unknown id
+            nameId(score.getGameName());
+            nameId(score.getPlayerName());
+            nameId(score.getGameMode());
+            nameId(score.getDifficulty());
+        }
+
+        for (GameScore score : scores) {
+            if (active == null || activeRecords == SEGMENT_RECORDS) {
+                if (active != null) {
+                    active.force();
+                }
+                openSegment(activeSegment + 1);
+            }
+            active.position(activeRecords * RECORD_SIZE);
+            writeRecord(active, score);
+            activeRecords++;
+        }
+        if (active != null) {
+            active.force();
+        }
+    }
+
+    private void writeRecord(ByteBuffer buffer, GameScore score) throws IOException {
+        int start = buffer.position();
+        buffer.putInt(score.getScoreId());
+        buffer.putInt(nameId(score.getGameName()));
+        buffer.putInt(nameId(score.getPlayerName()));
+        buffer.putInt(nameId(score.getGameMode()));
+        buffer.putInt(nameId(score.getDifficulty()));
+        buffer.putInt(score.getScore());
+        buffer.putInt(score.getPlayTime());
+        buffer.putLong(score.getPlayedAt().getTime());
+        buffer.put((byte) (score.isWon() ? 1 : 0));
+        buffer.put(new byte[3]);
+        buffer.putInt(checksum(buffer, start));
+    }
+
+    // null if the record at the buffer's position is blank or damaged
+    private GameScore readRecord(ByteBuffer buffer) {
+        int start = buffer.position();
+        int expected = buffer.getInt(start + PAYLOAD_SIZE);
+        if (checksum(buffer, start) != expected) {
+            return null;
+        }
+
+        int scoreId = buffer.getInt();
+        String game = name(buffer.getInt());
+        String player = name(buffer.getInt());
+        String mode = name(buffer.getInt());
+        String difficulty = name(buffer.getInt());
+        int score = buffer.getInt();
+        int playTime = buffer.getInt();
+        long playedAt = buffer.getLong();
+        boolean won = buffer.get() != 0;
+        buffer.position(start + RECORD_SIZE);
+        return new GameScore(scoreId, game, player, score, mode, difficulty, playTime, won, new Timestamp(playedAt));
+    }
+
+    private static int checksum(ByteBuffer buffer, int start) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate().position(start).limit(start + PAYLOAD_SIZE));
+        // Never 0, so an all-zero (never written) record can't pass
+        return (int) crc.getValue() | 1;
+    }
+
+    // Sealed segments are read with plain channel reads rather than mapped,
+    // so compaction can delete them while the process is running
+    private List<GameScore> readSegment(Path file) throws IOException {
+        List<GameScore> scores = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(channel.size(), SEGMENT_BYTES));
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // keep reading
+            }
+            buffer.flip();
+            while (buffer.remaining() >= RECORD_SIZE) {
+                GameScore score = readRecord(buffer);
+                if (score == null) {
+                    break;
+                }
+                scores.add(score);
+            }
+        }
+        return scores;
+    }
+
+    private void openSegment(long segment) throws IOException {
+        if (activeChannel != null) {
+            activeChannel.close();
+        }
+        activeSegment = segment;
+        activeChannel = FileChannel.open(segmentFile(segment),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        active = activeChannel.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_BYTES);
+        activeRecords = 0;
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (IOException e) {
+            System.err.println("Score compaction failed: " + e.getMessage());
+        }
+    }
+
+    // Merge sealed segments that are less than half full into as few
+    // segments as possible. The merged file is written and synced under a
+    // temporary name, renamed over the first input, then the rest are deleted.
+    void compact() throws IOException {
+        List<Long> group = new ArrayList<>();
+        int groupRecords = 0;
+        synchronized (this) {
+            for (Map.Entry<Long, Integer> entry : sealed.entrySet()) {
+                if (entry.getValue() >= SEGMENT_RECORDS / 2) {
+                    continue;
+                }
+                if (groupRecords + entry.getValue() > SEGMENT_RECORDS) {
+                    break;
+                }
+                group.add(entry.getKey());
+                groupRecords += entry.getValue();
+            }
+        }
+        if (group.size() < 2) {
+            return;
+        }
+
+        ByteBuffer merged = ByteBuffer.allocate(groupRecords * RECORD_SIZE);
+        for (long segment : group) {
+            for (GameScore score : readSegment(segmentFile(segment))) {
+                writeRecord(merged, score);
+            }
+        }
+        merged.flip();
+
+        Path target = segmentFile(group.get(0));
+        Path tmp = dir.resolve(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            while (merged.hasRemaining()) {
+                channel.write(merged);
+            }
+            channel.force(true);
+        }
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        for (long segment : group.subList(1, group.size())) {
+            Files.deleteIfExists(segmentFile(segment));
+        }
+
+        synchronized (this) {
+            group.forEach(sealed::remove);
+            sealed.put(group.get(0), groupRecords);
+        }
+        System.out.println("Compacted " + group.size() + " score segments into one (" + groupRecords + " records)");
+    }
+
+    private int nameId(String value) throws IOException {
+        String key = value != null ? value : "";
+        Integer id = nameIds.get(key);
+        if (id == null) {
+            id = names.size();
+            namesLog.append("N", String.valueOf(id), key);
+            names.add(key);
+            nameIds.put(key, id);
+        }
+        return id;
+    }
+
+    private String name(int id) {
+        return id >= 0 && id < names.size() ? names.get(id) : "?";
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "scores-*.seg")) {
+            stream.forEach(files::add);
+        }
+        files.sort(Comparator.comparingLong(ScoreSegmentStore::segmentNumber));
+        return files;
+    }
+
+    private Path segmentFile(long segment) {
+        return dir.resolve(String.format("scores-%08d.seg", segment));
+    }
+
+    private static long segmentNumber(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring("scores-".length(), name.length() - ".seg".length()));
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        compactor.shutdownNow();
+        if (active != null) {
+            active.force();
+            activeChannel.close();
+        }
+        namesLog.close();
+    }
+}
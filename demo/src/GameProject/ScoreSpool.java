@@ -0,0 +1,197 @@
+package GameProject;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Local backlog of scores the database couldn't take, in score-spool.log
+// under the data directory. Scores are fsynced there ("S" records) and a
+// background replayer sends them back in REPLAY_BATCH_SIZE batches, keyed by
+// event id so a batch whose commit was lost in transit isn't stored twice.
+// Replayed scores get a "D" record; once nothing is pending the file is
+// started afresh. Retries back off from MIN_RETRY_MS to MAX_RETRY_MS.
+class ScoreSpool {
+    private static final int REPLAY_BATCH_SIZE = 100;
+    private static final long MIN_RETRY_MS = 2_000;
+    private static final long MAX_RETRY_MS = 60_000;
+
+    private final Path file;
+    private final ScoreRepository repository;
+    private final Consumer<GameScore> onSaved;
+    // event id -> score, oldest first
+    private final Map<String, ScoreWriter.PendingScore> pending = new LinkedHashMap<>();
+    private final ScheduledExecutorService replayer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "score-spool-replayer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private EmbeddedLog log;
+    private long retryDelay = MIN_RETRY_MS;
+
+    // onSaved is called on the replayer thread for each replayed row
+    public ScoreSpool(Path file, ScoreRepository repository, Consumer<GameScore> onSaved) {
+        this.file = file;
+        this.repository = repository;
+        this.onSaved = onSaved;
+
+        try {
+            log = new EmbeddedLog(file);
+            for (String[] record : log.readAll()) {
+                replay(record);
+            }
+        } catch (IOException e) {
+            System.err.println("Could not open score spool: " + e.getMessage());
+        }
+        if (!pending.isEmpty()) {
+            System.out.println(pending.size() + " spooled score(s) waiting to be saved");
+        }
+        replayer.schedule(this::replayBatch, 0, TimeUnit.MILLISECONDS);
+    }
+
+    private void replay(String[] record) {
+        try {
+            if ("S".equals(record[0])) {
+                pending.put(record[1], new ScoreWriter.PendingScore(record[1], record[2], record[3],
+                        Integer.parseInt(record[4]), record[5], record[6], Integer.parseInt(record[7]),
+                        Boolean.parseBoolean(record[8]), new Timestamp(Long.parseLong(record[9]))));
+            } else if ("D".equals(record[0])) {
+                pending.remove(record[1]);
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Skipping bad score-spool.log record: " + String.join(" ", record));
+        }
+    }
+
+    public synchronized boolean hasPending() {
+        return !pending.isEmpty();
+    }
+
+    // Write the scores to disk; throws if even that fails
+    public synchronized void append(List<ScoreWriter.PendingScore> scores) throws IOException {
+        List<String[]> records = new ArrayList<>(scores.size());
+        for (ScoreWriter.PendingScore score : scores) {
+            records.add(new String[]{"S", score.eventId, score.gameName, score.playerName,
+                    String.valueOf(score.score), score.gameMode, score.difficulty, String.valueOf(score.playTime),
+                    String.valueOf(score.won), String.valueOf(score.playedAt.getTime())});
+        }
+        openLog().append(records);
+        for (ScoreWriter.PendingScore score : scores) {
+            pending.put(score.eventId, score);
+        }
+    }
+
+    private synchronized List<ScoreWriter.PendingScore> nextBatch() {
+        List<ScoreWriter.PendingScore> batch = new ArrayList<>(REPLAY_BATCH_SIZE);
+        for (ScoreWriter.PendingScore score : pending.values()) {
+            if (batch.size() >= REPLAY_BATCH_SIZE) {
+                break;
+            }
+            batch.add(score);
+        }
+        return batch;
+    }
+
+    private void replayBatch() {
+        List<ScoreWriter.PendingScore> batch = nextBatch();
+        long delay = MIN_RETRY_MS;
+
+        if (!batch.isEmpty()) {
+            List<GameScore> rows = new ArrayList<>(batch.size());
+            List<String> eventIds = new ArrayList<>(batch.size());
+            for (ScoreWriter.PendingScore score : batch) {
+                rows.add(score.toGameScore());
+                eventIds.add(score.eventId);
+            }
+
+            try {
+                List<GameScore> saved = repository.saveScoresOnce(rows, eventIds);
+                markReplayed(batch);
+                System.out.println("Replayed " + batch.size() + " spooled score(s), " + saved.size() + " new");
+                saved.forEach(onSaved);
+                retryDelay = MIN_RETRY_MS;
+                // More may be waiting; keep draining without a pause
+                delay = 0;
+            } catch (SQLException | IOException e) {
+                System.err.println("Score spool replay failed, retrying in " + retryDelay / 1000 + "s: " +
+                        e.getMessage());
+                delay = retryDelay;
+                retryDelay = Math.min(retryDelay * 2, MAX_RETRY_MS);
+            }
+        }
+
+        if (!replayer.isShutdown()) {
+            replayer.schedule(this::replayBatch, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private synchronized void markReplayed(List<ScoreWriter.PendingScore> batch) throws IOException {
+        for (ScoreWriter.PendingScore score : batch) {
+            pending.remove(score.eventId);
+        }
+
+        // Nothing left to replay, so the old records can go
+        if (pending.isEmpty() && startAfresh()) {
+            return;
+        }
+        List<String[]> records = new ArrayList<>(batch.size());
+        for (ScoreWriter.PendingScore score : batch) {
+            records.add(new String[]{"D", score.eventId});
+        }
+        openLog().append(records);
+    }
+
+    // Swap an empty file in for the log. The log is reopened whether or not
+    // that worked, so a failure here can't leave append() without a file.
+    private boolean startAfresh() {
+        Path empty = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.write(empty, new byte[0]);
+            if (log != null) {
+                log.close();
+            }
+            Files.move(empty, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Could not clear score spool, keeping its records: " + e.getMessage());
+            return false;
+        } finally {
+            log = null;
+            try {
+                openLog();
+            } catch (IOException e) {
+                System.err.println("Could not reopen score spool: " + e.getMessage());
+            }
+        }
+    }
+
+    // The log, opened again if an earlier open or compaction failed
+    private EmbeddedLog openLog() throws IOException {
+        if (log == null) {
+            log = new EmbeddedLog(file);
+        }
+        return log;
+    }
+
+    // Stop replaying; anything still pending is replayed on the next start
+    public synchronized void close() {
+        replayer.shutdownNow();
+        try {
+            if (log != null) {
+                log.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Error closing score spool: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package GameProject;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Write-behind queue for score inserts.
+// Games hand their result to submit() and carry on; a background thread
+// inserts queued rows in one JDBC batch once BATCH_SIZE rows are waiting or
+// FLUSH_INTERVAL_MS has passed since the first one arrived. Batches the
+// database rejects go to the ScoreSpool, as does everything after them
+// until the spool has been replayed.
+class ScoreWriter {
+    private static final int QUEUE_CAPACITY = 1000;
+    private static final int BATCH_SIZE = 50;
+    private static final long FLUSH_INTERVAL_MS = 250;
+
+    private final ScoreRepository repository;
+    private final ScoreSpool spool;
+    private final Consumer<GameScore> onSaved;
+    private final BlockingQueue<PendingScore> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    // onSaved is called on the writer thread for each committed row
+    public ScoreWriter(ScoreRepository repository, ScoreSpool spool, Consumer<GameScore> onSaved) {
+        this.repository = repository;
+        this.spool = spool;
+        this.onSaved = onSaved;
+        this.worker = new Thread(this::run, "score-writer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    // Queue a score; the future completes with true once the row is committed
+    // or spooled for replay
+    public CompletableFuture<Boolean> submit(PendingScore score) {
+        if (!running || !queue.offer(score)) {
+            System.err.println("Score queue full - score not saved for " + score.playerName);
+            score.result.complete(false);
+        }
+        return score.result;
+    }
+
+    private void run() {
+        List<PendingScore> batch = new ArrayList<>(BATCH_SIZE);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingScore first = queue.poll(FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                // Collect more rows until the batch is full or the flush interval is up
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(FLUSH_INTERVAL_MS);
+                while (batch.size() < BATCH_SIZE) {
+                    queue.drainTo(batch, BATCH_SIZE - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= BATCH_SIZE || remaining <= 0) {
+                        break;
+                    }
+                    PendingScore next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                flush(batch);
+            } catch (InterruptedException e) {
+                flush(batch);
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // Never let one bad batch stop the writer; nobody should wait forever on these
+                System.err.println("Error in score writer: " + e);
+                for (PendingScore score : batch) {
+                    score.result.completeExceptionally(e);
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingScore> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        // Don't wait on a database that is already known to be failing
+        if (spool.hasPending()) {
+            spoolBatch(batch);
+            return;
+        }
+
+        List<GameScore> saved;
+        try {
+            List<GameScore> rows = new ArrayList<>(batch.size());
+            List<String> eventIds = new ArrayList<>(batch.size());
+            for (PendingScore score : batch) {
+                rows.add(score.toGameScore());
+                eventIds.add(score.eventId);
+            }
+            saved = repository.saveScoresOnce(rows, eventIds);
+        } catch (SQLException | RuntimeException e) {
+            // Replays skip event ids already stored, so spooling a batch that did commit is harmless
+            System.err.println("Error saving scores, spooling them: " + e);
+            spoolBatch(batch);
+            return;
+        }
+
+        System.out.println("Saved " + batch.size() + " score(s)");
+        for (PendingScore score : batch) {
+            score.result.complete(true);
+        }
+        for (GameScore score : saved) {
+            try {
+                onSaved.accept(score);
+            } catch (RuntimeException e) {
+                System.err.println("Error updating leaderboards for a saved score: " + e);
+            }
+        }
+    }
+
+    private void spoolBatch(List<PendingScore> batch) {
+        boolean spooled;
+        try {
+            spool.append(batch);
+            spooled = true;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error spooling scores - " + batch.size() + " score(s) lost: " + e.getMessage());
+            spooled = false;
+        }
+        for (PendingScore score : batch) {
+            score.result.complete(spooled);
+        }
+    }
+
+    // Stop accepting scores and wait for the queue to drain
+    public void close() {
+        running = false;
+        try {
+            worker.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static class PendingScore {
+        final String eventId; // idempotency key for replays
+        final String gameName;
+        final String playerName;
+        final int score;
+        final String gameMode;
+        final String difficulty;
+        final int playTime;
+        final boolean won;
+        final Timestamp playedAt;
+        final CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+        PendingScore(String gameName, String playerName, int score,
+                     String gameMode, String difficulty, int playTime, boolean won) {
+            this(UUID.randomUUID().toString(), gameName, playerName, score, gameMode, difficulty, playTime, won,
+                    new Timestamp(System.currentTimeMillis()));
+        }
+
+        // A score read back from the spool
+        PendingScore(String eventId, String gameName, String playerName, int score,
+                     String gameMode, String difficulty, int playTime, boolean won, Timestamp playedAt) {
+            this.eventId = eventId;
+            this.gameName = gameName;
+            this.playerName = playerName;
+            this.score = score;
+            this.gameMode = gameMode;
+            this.difficulty = difficulty;
+            this.playTime = playTime;
+            this.won = won;
+            this.playedAt = playedAt;
+        }
+
+        GameScore toGameScore() {
+            return new GameScore(0, gameName, playerName, score, gameMode, difficulty, playTime, won, playedAt);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package GameProject;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Logged-in sessions keyed by session token, for processes that serve many
+// users at once (the game servers, or UserAuthManager used server-side).
+//
+// get() is one ConcurrentHashMap read plus a volatile write of the
+// last-seen time, so it is cheap enough to call for every message. A timer
+// drops sessions that have been idle for -Dgamehub.sessionIdleMinutes
+// (default 30) or whose token has expired.
+//
+// A dropped or closed token is remembered as revoked until it expires, so
+// presenting the same (still validly signed) token again can't revive it.
+class SessionRegistry {
+    private static final long SWEEP_INTERVAL_SECONDS = 30;
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    // token -> its expiry time
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    private final long idleMillis;
+
+    public SessionRegistry() {
+        this(Long.getLong("gamehub.sessionIdleMinutes", 30) * 60_000L);
+    }
+
+    public SessionRegistry(long idleMillis) {
+        this.idleMillis = idleMillis;
+        ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "session-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweep, SWEEP_INTERVAL_SECONDS, SWEEP_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    // Register a token that has already been verified; null if it was revoked
+    public Session open(String token, SessionTokens.Claims claims) {
+        if (revoked.containsKey(token)) {
+            return null;
+        }
+        Session session = new Session(token, claims.userId, claims.username, claims.expiresAt);
+        Session existing = sessions.putIfAbsent(token, session);
+        if (existing != null) {
+            existing.touch();
+            return existing;
+        }
+        return session;
+    }
+
+    // Verify a token and register it; null if the token isn't valid or was revoked
+    public Session open(String token) {
+        SessionTokens.Claims claims = SessionTokens.verify(token);
+        return claims != null ? open(token, claims) : null;
+    }
+
+    // The live session for a token, marking it as used; null once it has
+    // been closed, gone idle or expired
+    public Session get(String token) {
+        Session session = sessions.get(token);
+        if (session == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (session.isStale(now, idleMillis)) {
+            revoke(session);
+            return null;
+        }
+        session.lastSeen = now;
+        return session;
+    }
+
+    public void close(String token) {
+        if (token != null) {
+            Session session = sessions.get(token);
+            if (session != null) {
+                revoke(session);
+            }
+        }
+    }
+
+    private void revoke(Session session) {
+        revoked.put(session.token, session.expiresAt);
+        sessions.remove(session.token, session);
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    private void sweep() {
+        long now = System.currentTimeMillis();
+        for (Session session : sessions.values()) {
+            if (session.isStale(now, idleMillis)) {
+                revoke(session);
+            }
+        }
+        // An expired token fails verification anyway
+        revoked.values().removeIf(expiresAt -> now >= expiresAt);
+    }
+
+    static class Session {
+        final String token;
+        final int userId;
+        final String username;
+        final long expiresAt;
+        private volatile long lastSeen = System.currentTimeMillis();
+
+        Session(String token, int userId, String username, long expiresAt) {
+            this.token = token;
+            this.userId = userId;
+            this.username = username;
+            this.expiresAt = expiresAt;
+        }
+
+        void touch() {
+            lastSeen = System.currentTimeMillis();
+        }
+
+        boolean isStale(long now, long idleMillis) {
+            return now >= expiresAt || now - lastSeen > idleMillis;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package GameProject;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+// HMAC-signed session tokens. The desktop client gets one at login and sends
+// it as the first line to the game servers ("AUTH:<token>"), which check the
+// signature and expiry locally instead of looking the user up.
+//
+// Token: base64url("userId:expiresAtMillis:username") + "." + base64url(HMAC-SHA256)
+//
+// Client and servers must share the key: -Dgamehub.sessionSecret when they
+// run on different machines, otherwise a random key kept in session.key in
+// the data directory.
+final class SessionTokens {
+    public static final String AUTH_PREFIX = "AUTH:";
+    // Appended to guest names so a guest can't pass as the registered player of the same name
+    public static final String GUEST_SUFFIX = " (guest)";
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final long TTL_MILLIS = Long.getLong("gamehub.sessionHours", 12) * 3_600_000L;
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private static volatile SecretKeySpec key;
+
+    private SessionTokens() {
+    }
+
+    public static String issue(User user) {
+        String payload = user.getUserId() + ":" + (System.currentTimeMillis() + TTL_MILLIS) + ":" + user.getUsername();
+        byte[] payloadBytes = payload.getBytes(StandardCharsets.UTF_8);
+        return ENCODER.encodeToString(payloadBytes) + "." + ENCODER.encodeToString(sign(payloadBytes));
+    }
+
+    // The signed claims, or null if the token is malformed, forged or expired
+    public static Claims verify(String token) {
+        if (token == null) {
+            return null;
+        }
+        int dot = token.indexOf('.');
+        if (dot < 0) {
+            return null;
+        }
+
+        try {
+            byte[] payloadBytes = DECODER.decode(token.substring(0, dot));
+            if (!MessageDigest.isEqual(sign(payloadBytes), DECODER.decode(token.substring(dot + 1)))) {
+                return null;
+            }
+            String[] parts = new String(payloadBytes, StandardCharsets.UTF_8).split(":", 3);
+            Claims claims = new Claims(Integer.parseInt(parts[0]), parts[2], Long.parseLong(parts[1]));
+            return claims.expiresAt > System.currentTimeMillis() ? claims : null;
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    // Server side of the handshake: the verified username for "AUTH:<token>",
+    // null for a bad token or no line at all, or the name as sent plus
+    // GUEST_SUFFIX for a guest
+    public static Claims fromHandshake(String firstLine) {
+        if (firstLine == null) {
+            return null;
+        }
+        if (firstLine.startsWith(AUTH_PREFIX)) {
+            return verify(firstLine.substring(AUTH_PREFIX.length()));
+        }
+        String name = firstLine.isBlank() ? "Guest" : firstLine.trim();
+        return new Claims(0, name + GUEST_SUFFIX, 0);
+    }
+
+    private static byte[] sign(byte[] payload) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key());
+            return mac.doFinal(payload);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Error signing session token", e);
+        }
+    }
+
+    private static SecretKeySpec key() {
+        SecretKeySpec current = key;
+        if (current == null) {
+            synchronized (SessionTokens.class) {
+                if (key == null) {
+                    key = new SecretKeySpec(loadSecret(), ALGORITHM);
+                }
+                current = key;
+            }
+        }
+        return current;
+    }
+
+    private static byte[] loadSecret() {
+        String configured = System.getProperty("gamehub.sessionSecret");
+        if (configured != null && !configured.isEmpty()) {
+            return configured.getBytes(StandardCharsets.UTF_8);
+        }
+
+        Path file = StorageBackend.dataDir().resolve("session.key");
+        try {
+            if (!Files.exists(file)) {
+                byte[] secret = new byte[32];
+                new SecureRandom().nextBytes(secret);
+                Files.createDirectories(file.getParent());
+                try {
+                    Files.write(file, secret, StandardOpenOption.CREATE_NEW);
+                } catch (FileAlreadyExistsException e) {
+                    // Another process created it first; use theirs
+                }
+            }
+            return Files.readAllBytes(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read session key " + file, e);
+        }
+    }
+
+    static class Claims {
+        final int userId;
+        final String username;
+        final long expiresAt;
+
+        Claims(int userId, String username, long expiresAt) {
+            this.userId = userId;
+            this.username = username;
+            this.expiresAt = expiresAt;
+        }
+
+        // False for guests, who only sent a name
+        boolean isAuthenticated() {
+            return userId > 0;
+        }
+    }
+}
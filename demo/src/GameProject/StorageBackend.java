@@ -0,0 +1,47 @@
+package GameProject;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+// Picks where scores and accounts are stored.
+// -Dgamehub.store=embedded keeps everything in local files under
+// -Dgamehub.dataDir (default ~/.gamehub), so no MySQL server is needed;
+// the default "mysql" uses the shared game_hub database.
+final class StorageBackend {
+    private StorageBackend() {
+    }
+
+    public static boolean isEmbedded() {
+        return "embedded".equalsIgnoreCase(System.getProperty("gamehub.store", "mysql"));
+    }
+
+    public static ScoreRepository createScoreRepository() {
+        if (!isEmbedded()) {
+            return new MySqlScoreRepository(ConnectionPool.getInstance());
+        }
+        try {
+            return new EmbeddedScoreRepository(dataDir());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open embedded score store", e);
+        }
+    }
+
+    public static UserRepository createUserRepository() {
+        if (!isEmbedded()) {
+            return new MySqlUserRepository(ConnectionPool.getInstance());
+        }
+        try {
+            return new EmbeddedUserRepository(dataDir());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open embedded user store", e);
+        }
+    }
+
+    // Also holds local caches in MySQL mode
+    static Path dataDir() {
+        return Paths.get(System.getProperty("gamehub.dataDir",
+                Paths.get(System.getProperty("user.home"), ".gamehub").toString()));
+    }
+}
@@ -0,0 +1,77 @@
+package GameProject;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Sends Pacman-style snapshots over localhost UDP with 30% simulated loss,
+// then replays old ticks, and checks that the client keeps only newer ones
+public class TestDatagramLink {
+    private static final int SNAPSHOTS = 200;
+
+    public static void main(String[] args) throws Exception {
+        DatagramLink.LossSimulator loss = DatagramLink.LossSimulator.random(0.3, new Random(42));
+
+        try (DatagramLink server = DatagramLink.bind(0, loss);
+             DatagramLink client = DatagramLink.connect(
+                     new InetSocketAddress("localhost", server.getLocalPort()),
+                     DatagramLink.LossSimulator.none())) {
+
+            // The server learns the client's address from its first datagram
+            client.send("HELLO:test");
+            DatagramLink.Packet hello = server.receive(2000);
+            check(hello != null && hello.message.equals("HELLO:test"), "server received HELLO");
+            SocketAddress clientAddress = hello.from;
+
+            List<Integer> sent = new ArrayList<>();
+            for (int tick = 1; tick <= SNAPSHOTS; tick++) {
+                sent.add(tick);
+            }
+            // Late and repeated datagrams, as a real network might deliver them
+            for (int tick = SNAPSHOTS - 20; tick <= SNAPSHOTS; tick += 2) {
+                sent.add(tick);
+            }
+            sent.add(SNAPSHOTS + 2);
+            sent.add(SNAPSHOTS + 1);
+            for (int tick : sent) {
+                server.send("SNAPSHOT:" + tick + ":0:1:1:0:2:2:0:5,5", clientAddress);
+            }
+
+            DatagramLink.TickFilter filter = new DatagramLink.TickFilter();
+            int received = 0;
+            int newest = 0;
+            int stale = 0;
+            DatagramLink.Packet packet;
+            while ((packet = client.receive(500)) != null) {
+                received++;
+                int tick = Integer.parseInt(packet.message.split(":")[1]);
+                boolean expected = tick > newest;
+                boolean accepted = filter.accept(tick);
+                check(accepted == expected, "tick " + tick + " after " + newest +
+                        (expected ? " is accepted" : " is dropped"));
+                if (accepted) {
+                    newest = tick;
+                } else {
+                    stale++;
+                }
+            }
+
+            System.out.println("Sent " + sent.size() + ", received " + received +
+                    ", dropped as stale " + stale);
+            check(received > 0, "some datagrams arrive");
+            check(received < sent.size(), "the loss simulator drops datagrams");
+            check(stale > 0, "late datagrams reach the client and are dropped");
+            check(!filter.accept(newest) && !filter.accept(1), "a repeat of the newest or first tick is dropped");
+            System.out.println("✅ UDP snapshot ordering OK");
+        }
+    }
+
+    private static void check(boolean condition, String what) {
+        if (!condition) {
+            System.out.println("❌ Failed: " + what);
+            System.exit(1);
+        }
+    }
+}
@@ -5,7 +5,7 @@ public class TestSaveScore {
         // Get database instance
         DatabaseManager db = DatabaseManager.getInstance();
 
-        // Save a test score
+        // Save a test score and wait for the writer to commit it
         boolean success = db.saveScore(
                 "TicTacToe",        // Game name
                 "TestPlayer",       // Player name
@@ -14,7 +14,7 @@ public class TestSaveScore {
                 "easy",             // Difficulty
                 60,                 // Play time (seconds)
                 true                // Won the game
-        );
+        ).join();
 
         if (success) {
             System.out.println("✅ Score saved successfully!");
@@ -38,6 +38,7 @@ public class TestSaveScore {
 
         // Close connection
         db.closeConnection();
+        ConnectionPool.closeInstance();
     }
 }
 
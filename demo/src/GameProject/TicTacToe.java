@@ -131,7 +131,22 @@ public class TicTacToe extends Application {
         populateLeaderboard(multiList, multiScores);
         multiTab.setContent(multiList);
 
-        tabPane.getTabs().addAll(soloTab, multiTab);
+        // Recent VS Computer boards: today and the last seven days
+        Tab weekTab = new Tab("This Week");
+        weekTab.setClosable(false);
+        ListView<String> todayList = new ListView<>();
+        populateLeaderboard(todayList, dbManager.getDailyTopScores("TicTacToe", "vs_computer", 10));
+        ListView<String> weekList = new ListView<>();
+        populateLeaderboard(weekList, dbManager.getWeeklyTopScores("TicTacToe", "vs_computer", 10));
+        Label todayLabel = new Label("Today - VS Computer");
+        todayLabel.setFont(Font.font("System", FontWeight.BOLD, 14));
+        Label weekLabel = new Label("Last 7 Days - VS Computer");
+        weekLabel.setFont(Font.font("System", FontWeight.BOLD, 14));
+        VBox weekBox = new VBox(8, todayLabel, todayList, weekLabel, weekList);
+        weekBox.setPadding(new Insets(10));
+        weekTab.setContent(weekBox);
+
+        tabPane.getTabs().addAll(soloTab, multiTab, weekTab);
 
         Button closeBtn = new Button("Close");
         styleButton(closeBtn);
@@ -231,7 +246,7 @@ public class TicTacToe extends Application {
             out = new PrintWriter(socket.getOutputStream(), true);
             in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
 
-            out.println(playerName);
+            out.println(authManager.getHandshakeLine(playerName));
             new Thread(this::listenToServer).start();
             showWaitingScreen();
         } catch (IOException e) {
@@ -262,6 +277,7 @@ public class TicTacToe extends Application {
     }
 
     private void listenToServer() {
+        Socket connection = socket;
         try {
             String message;
             while ((message = in.readLine()) != null) {
@@ -269,7 +285,28 @@ public class TicTacToe extends Application {
                 Platform.runLater(() -> handleServerMessage(finalMessage));
             }
         } catch (IOException e) {
-            Platform.runLater(() -> showAlert("Connection Lost", "Lost connection to server"));
+            // Same as the server hanging up
+        }
+        Platform.runLater(() -> {
+            // Unless we hung up ourselves or an ERROR already explained it
+            if (socket == connection) {
+                leaveOnlineGame("Connection Lost", "Lost connection to server");
+            }
+        });
+    }
+
+    // The server refused or dropped us; say why and go back to the menu
+    private void leaveOnlineGame(String title, String message) {
+        closeConnection();
+        showAlert(title, message);
+        showModeSelection();
+    }
+
+    private void closeConnection() {
+        Socket connection = socket;
+        socket = null;
+        if (connection != null) {
+            try { connection.close(); } catch (IOException e) {}
         }
     }
 
@@ -312,6 +349,10 @@ public class TicTacToe extends Application {
             case "OPPONENT_DISCONNECTED":
                 Platform.runLater(() -> showAlert("Opponent Left", "Your opponent disconnected"));
                 break;
+            case "ERROR":
+                // Refused session, rate limit or a rejected move: the boards no longer agree
+                leaveOnlineGame("Server Error", message.substring("ERROR:".length()));
+                break;
         }
     }
 
@@ -411,9 +452,7 @@ public class TicTacToe extends Application {
 
         resetBtn.setOnAction(e -> resetGame());
         menuBtn.setOnAction(e -> {
-            if (socket != null) {
-                try { socket.close(); } catch (IOException ex) {}
-            }
+            closeConnection();
             showModeSelection();
         });
 
@@ -611,9 +650,8 @@ public class TicTacToe extends Application {
             playerWon = winner != null;
             score = playerWon ? 100 : 50;
         } else {
-            gameMode = "online";
-            playerWon = mySymbol.equals(winner);
-            score = playerWon ? 100 : 0;
+            // The server records online matches for both players
+            return;
         }
         if (winner == null) score = 50;
 
@@ -691,11 +729,7 @@ public class TicTacToe extends Application {
 
     @Override
     public void stop() {
-        try {
-            if (socket != null) socket.close();
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+        closeConnection();
     }
 
     public static void main(String[] args) {
@@ -9,10 +9,18 @@ public class TicTacToeServer {
     private static final int PORT = 5557;
     private static List<ClientHandler> waitingPlayers = new CopyOnWriteArrayList<>();
     private static List<GameRoom> activeGames = new CopyOnWriteArrayList<>();
+    // Logged-in players' sessions, checked on every message
+    private static final SessionRegistry SESSIONS = new SessionRegistry();
+    // Per user (per address for guests)
+    private static final RateLimiter CONNECT_LIMIT = new RateLimiter(5, 5.0 / 60);
+    private static final RateLimiter MESSAGE_LIMIT = new RateLimiter(20, 10);
+    // Finished matches are stored here rather than by the clients
+    private static MatchResultWriter results;
 
     public static void main(String[] args) {
         System.out.println("🎮 Tic-Tac-Toe Server Starting...");
         System.out.println("📡 Listening on port: " + PORT);
+        results = MatchResultWriter.startForServer();
 
         try (ServerSocket serverSocket = new ServerSocket(PORT)) {
             while (true) {
@@ -33,6 +41,9 @@ public class TicTacToeServer {
         private PrintWriter out;
         private BufferedReader in;
         private String playerName;
+        private int userId; // 0 for guests
+        private String sessionToken; // null for guests
+        private String rateKey;
         private GameRoom gameRoom;
         private String mySymbol; // This player's assigned symbol
 
@@ -46,8 +57,28 @@ public class TicTacToeServer {
                 in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
                 out = new PrintWriter(socket.getOutputStream(), true);
 
-                // Get player name
-                playerName = in.readLine();
+                // First line: "AUTH:<session token>" from a logged-in client, or a guest name
+                String handshake = in.readLine();
+                SessionTokens.Claims claims = SessionTokens.fromHandshake(handshake);
+                if (claims == null) {
+                    out.println("ERROR:Invalid or expired session - please log in again");
+                    return;
+                }
+                rateKey = claims.isAuthenticated() ? claims.username : socket.getInetAddress().getHostAddress();
+                if (!CONNECT_LIMIT.tryAcquire(rateKey)) {
+                    out.println("ERROR:Too many connections - try again later");
+                    return;
+                }
+                playerName = claims.username;
+                userId = claims.userId;
+                if (claims.isAuthenticated()) {
+                    sessionToken = handshake.substring(SessionTokens.AUTH_PREFIX.length());
+                    if (SESSIONS.open(sessionToken, claims) == null) {
+                        // Went idle or was closed earlier; the signature alone doesn't bring it back
+                        out.println("ERROR:Session expired - please log in again");
+                        return;
+                    }
+                }
                 System.out.println("👤 Player joined: " + playerName);
 
                 // Add to waiting list
@@ -59,6 +90,14 @@ public class TicTacToeServer {
                 // Listen for messages
                 String message;
                 while ((message = in.readLine()) != null) {
+                    if (sessionToken != null && SESSIONS.get(sessionToken) == null) {
+                        sendMessage("ERROR:Session expired - please log in again");
+                        break;
+                    }
+                    if (!MESSAGE_LIMIT.tryAcquire(rateKey)) {
+                        sendMessage("ERROR:Too many messages");
+                        continue;
+                    }
                     if (gameRoom != null) {
                         gameRoom.handleMessage(this, message);
                     }
@@ -92,6 +131,10 @@ public class TicTacToeServer {
             return playerName;
         }
 
+        public int getUserId() {
+            return userId;
+        }
+
         public String getMySymbol() {
             return mySymbol;
         }
@@ -118,6 +161,7 @@ public class TicTacToeServer {
         private ClientHandler player2; // Always O
         private String[][] board = new String[3][3];
         private ClientHandler currentTurnPlayer; // Track which player's turn it is
+        private final long startedAt = System.currentTimeMillis();
 
         public GameRoom(ClientHandler p1, ClientHandler p2) {
             this.player1 = p1;
@@ -199,16 +243,33 @@ public class TicTacToeServer {
                     System.out.println("🏆 Winner: " + sender.getPlayerName() + " (" + symbol + ")");
                     player1.sendMessage("WIN:" + sender.getPlayerName());
                     player2.sendMessage("WIN:" + sender.getPlayerName());
+                    recordResult(sender);
                     activeGames.remove(this);
                 } else if (isBoardFull()) {
                     System.out.println("🤝 Game ended in a draw");
                     player1.sendMessage("DRAW");
                     player2.sendMessage("DRAW");
+                    recordResult(null);
                     activeGames.remove(this);
                 }
             }
         }
 
+        // 100 for a win, 50 for a draw, 0 for a loss - the same scores the client used to save
+        private void recordResult(ClientHandler winner) {
+            if (results == null) {
+                return;
+            }
+            int playTime = (int) ((System.currentTimeMillis() - startedAt) / 1000);
+            results.submit(new MatchResult("TicTacToe", "online", "medium",
+                    side(player1, winner), side(player2, winner), playTime));
+        }
+
+        private static MatchResult.Side side(ClientHandler player, ClientHandler winner) {
+            int score = winner == null ? 50 : winner == player ? 100 : 0;
+            return new MatchResult.Side(player.getPlayerName(), player.getUserId(), score, winner == player);
+        }
+
         private boolean checkWinner(String symbol) {
             // Check rows
             for (int i = 0; i < 3; i++) {
@@ -0,0 +1,162 @@
+package GameProject;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Handler behind every statement ConnectionPool hands out. It times each
+// execute call into QueryStats under the connection's query name, counts
+// the rows read or changed, remembers bind values for the slow-query log,
+// and reports whether the server answered to the circuit breaker.
+class TracedStatement implements InvocationHandler {
+    private final Statement statement;
+    private final String queryName;
+    private final String preparedSql;
+    private final CircuitBreaker breaker;
+    private final QueryStats stats;
+
+    private final Map<Integer, Object> binds = new TreeMap<>();
+    private int batchSize;
+    private long rows;
+    private boolean rowsPending;
+
+    private TracedStatement(Statement statement, String queryName, String preparedSql,
+                            CircuitBreaker breaker, QueryStats stats) {
+        this.statement = statement;
+        this.queryName = queryName;
+        this.preparedSql = preparedSql;
+        this.breaker = breaker;
+        this.stats = stats;
+    }
+
+    // type is the interface the caller asked for (Statement, PreparedStatement or CallableStatement)
+    static Statement wrap(Statement statement, Class<?> type, String queryName, String preparedSql,
+                          CircuitBreaker breaker, QueryStats stats) {
+        return (Statement) Proxy.newProxyInstance(
+                Statement.class.getClassLoader(),
+                new Class<?>[]{type},
+                new TracedStatement(statement, queryName, preparedSql, breaker, stats));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        if (name.startsWith("execute")) {
+            return execute(method, args);
+        }
+
+        if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+            binds.put((Integer) args[0], name.equals("setNull") ? null : args[1]);
+        } else if (name.equals("addBatch")) {
+            batchSize++;
+        } else if (name.equals("clearParameters")) {
+            binds.clear();
+        } else if (name.equals("close")) {
+            flushRows();
+        }
+        return invokeOnStatement(method, args);
+    }
+
+    private Object execute(Method method, Object[] args) throws Throwable {
+        flushRows();
+        String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : preparedSql;
+
+        long start = System.nanoTime();
+        Object result;
+        try {
+            result = method.invoke(statement, args);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            long elapsed = System.nanoTime() - start;
+            stats.recordExecution(queryName, elapsed, true);
+            if (stats.isSlow(elapsed)) {
+                stats.logSlow(queryName, sql, binds, batchSize, elapsed);
+            }
+            if (cause instanceof SQLException) {
+                // Constraint violations and the like still prove the server answered
+                if (isUnavailable((SQLException) cause)) {
+                    breaker.recordFailure();
+                } else {
+                    breaker.recordSuccess();
+                }
+            }
+            batchSize = 0;
+            throw cause;
+        }
+
+        long elapsed = System.nanoTime() - start;
+        breaker.recordSuccess();
+        stats.recordExecution(queryName, elapsed, false);
+        if (stats.isSlow(elapsed)) {
+            stats.logSlow(queryName, sql, binds, batchSize, elapsed);
+        }
+        batchSize = 0;
+        return countRows(result);
+    }
+
+    // Rows are recorded once the statement is closed or run again, so a
+    // result set's rows can be counted as the caller reads them
+    private Object countRows(Object result) {
+        if (result instanceof ResultSet) {
+            rowsPending = true;
+            return countingResultSet((ResultSet) result);
+        }
+        if (result instanceof Integer || result instanceof Long) {
+            rowsPending = true;
+            rows = Math.max(((Number) result).longValue(), 0);
+        } else if (result instanceof int[]) {
+            rowsPending = true;
+            for (int count : (int[]) result) {
+                // SUCCESS_NO_INFO (-2) still means one row went in
+                rows += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(count, 0);
+            }
+        }
+        return result;
+    }
+
+    private ResultSet countingResultSet(ResultSet resultSet) {
+        return (ResultSet) Proxy.newProxyInstance(
+                ResultSet.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> {
+                    Object result;
+                    try {
+                        result = method.invoke(resultSet, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                    if (Boolean.TRUE.equals(result) && method.getName().equals("next")) {
+                        rows++;
+                    }
+                    return result;
+                });
+    }
+
+    private void flushRows() {
+        if (rowsPending) {
+            stats.recordRows(queryName, rows);
+            rowsPending = false;
+        }
+        rows = 0;
+    }
+
+    private Object invokeOnStatement(Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(statement, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static boolean isUnavailable(SQLException e) {
+        return e instanceof SQLTimeoutException
+                || e instanceof SQLTransientConnectionException
+                || e instanceof SQLNonTransientConnectionException
+                || e instanceof SQLRecoverableException
+                || (e.getSQLState() != null && e.getSQLState().startsWith("08"));
+    }
+}
@@ -0,0 +1,28 @@
+package GameProject;
+
+import java.sql.Timestamp;
+
+// User class
+class User {
+    private int userId;
+    private String username;
+    private String email;
+    private Timestamp createdAt;
+
+    public User(int userId, String username, String email, Timestamp createdAt) {
+        this.userId = userId;
+        this.username = username;
+        this.email = email;
+        this.createdAt = createdAt;
+    }
+
+    public int getUserId() { return userId; }
+    public String getUsername() { return username; }
+    public String getEmail() { return email; }
+    public Timestamp getCreatedAt() { return createdAt; }
+
+    @Override
+    public String toString() {
+        return "User: " + username + " (ID: " + userId + ")";
+    }
+}
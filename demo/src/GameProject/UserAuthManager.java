@@ -1,146 +1,131 @@
 package GameProject;
 
 import java.sql.*;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.nio.charset.StandardCharsets;
-
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
+// Accounts and sessions. Any number of users can be logged in through
+// authenticateAsync, each as a session in the registry; the desktop app uses
+// the single-user facade (login, logout, getCurrentUser) on top of that.
 public class UserAuthManager {
+    private static final String BUSY_MESSAGE = "Server busy - please try again in a moment";
     private static UserAuthManager instance;
-    private Connection connection;
-    private User currentUser = null; // null means guest mode
+    private final UserRepository repository;
+    private final LastLoginWriter lastLoginWriter;
+    private final PasswordHasher hasher;
+    private final SessionRegistry sessions = new SessionRegistry();
+    // Desktop facade: the one user of this client
+    private volatile User currentUser = null; // null means guest mode
+    private volatile String sessionToken = null;
 
     private UserAuthManager() {
-        try {
-            Class.forName("com.mysql.cj.jdbc.Driver");
-            connection = DriverManager.getConnection(
-                    "jdbc:mysql://localhost:3306/game_hub",
-                    "root",
-                    ""
-            );
-            createUsersTable();
-            System.out.println("UserAuth connected successfully!");
-        } catch (Exception e) {
-            System.err.println("UserAuth connection failed!");
-            e.printStackTrace();
-        }
+        repository = StorageBackend.createUserRepository();
+        lastLoginWriter = new LastLoginWriter(repository);
+        hasher = new PasswordHasher();
     }
 
-    public static UserAuthManager getInstance() {
+    public static synchronized UserAuthManager getInstance() {
         if (instance == null) {
             instance = new UserAuthManager();
         }
         return instance;
     }
 
-    // Create users table if it doesn't exist
-    private void createUsersTable() {
-        String sql = "CREATE TABLE IF NOT EXISTS users (" +
-                "user_id INT PRIMARY KEY AUTO_INCREMENT," +
-                "username VARCHAR(50) UNIQUE NOT NULL," +
-                "password_hash VARCHAR(64) NOT NULL," +
-                "email VARCHAR(100)," +
-                "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
-                "last_login TIMESTAMP," +
-                "INDEX idx_username (username))";
-
-        try (Statement stmt = connection.createStatement()) {
-            stmt.execute(sql);
-            System.out.println("Users table ready!");
-        } catch (SQLException e) {
-            System.err.println("Error creating users table: " + e.getMessage());
-        }
-    }
-
-    // Hash password using SHA-256
-    private String hashPassword(String password) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(password.getBytes(StandardCharsets.UTF_8));
-            StringBuilder hexString = new StringBuilder();
-            for (byte b : hash) {
-                String hex = Integer.toHexString(0xff & b);
-                if (hex.length() == 1) hexString.append('0');
-                hexString.append(hex);
-            }
-            return hexString.toString();
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("Error hashing password", e);
-        }
+    // Register a new user. Blocks while the password is hashed; UI code
+    // should use registerAsync.
+    public RegistrationResult register(String username, String password, String email) {
+        return registerAsync(username, password, email).join();
     }
 
-    // Register a new user
-    public RegistrationResult register(String username, String password, String email) {
+    // Validation happens here; hashing and the insert run on the hashing pool
+    public CompletableFuture<RegistrationResult> registerAsync(String username, String password, String email) {
         // Validation
         if (username == null || username.trim().isEmpty()) {
-            return new RegistrationResult(false, "Username cannot be empty");
+            return CompletableFuture.completedFuture(new RegistrationResult(false, "Username cannot be empty"));
         }
         if (username.length() < 3) {
-            return new RegistrationResult(false, "Username must be at least 3 characters");
+            return CompletableFuture.completedFuture(
+                    new RegistrationResult(false, "Username must be at least 3 characters"));
         }
         if (username.length() > 50) {
-            return new RegistrationResult(false, "Username must be less than 50 characters");
+            return CompletableFuture.completedFuture(
+                    new RegistrationResult(false, "Username must be less than 50 characters"));
         }
         if (password == null || password.length() < 6) {
-            return new RegistrationResult(false, "Password must be at least 6 characters");
-        }
-
-        // Check if username already exists
-        if (usernameExists(username)) {
-            return new RegistrationResult(false, "Username already taken");
+            return CompletableFuture.completedFuture(
+                    new RegistrationResult(false, "Password must be at least 6 characters"));
         }
 
-        String sql = "INSERT INTO users (username, password_hash, email) VALUES (?, ?, ?)";
-
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, username.trim());
-            pstmt.setString(2, hashPassword(password));
-            pstmt.setString(3, email != null ? email.trim() : null);
+        return hasher.submit(() -> createUser(username.trim(), password, email != null ? email.trim() : null))
+                .exceptionally(e -> new RegistrationResult(false, failureMessage("Registration", e)));
+    }
 
-            pstmt.executeUpdate();
+    private RegistrationResult createUser(String username, String password, String email) {
+        // A single insert; the unique username index reports a taken name
+        try {
+            repository.createUser(username, hasher.hash(password), email);
             System.out.println("User registered: " + username);
             return new RegistrationResult(true, "Registration successful!");
 
+        } catch (SQLIntegrityConstraintViolationException e) {
+            return new RegistrationResult(false, "Username already taken");
         } catch (SQLException e) {
             System.err.println("Registration error: " + e.getMessage());
             return new RegistrationResult(false, "Registration failed: " + e.getMessage());
         }
     }
 
-    // Login user
+    // Login user. Blocks while the password is checked; UI code should use loginAsync.
     public LoginResult login(String username, String password) {
+        return loginAsync(username, password).join();
+    }
+
+    // Desktop login: authenticates and makes the user this client's current user
+    public CompletableFuture<LoginResult> loginAsync(String username, String password) {
+        return authenticateAsync(username, password).thenApply(result -> {
+            if (result.isSuccess()) {
+                this.sessionToken = result.getSessionToken();
+                this.currentUser = result.getUser();
+            }
+            return result;
+        });
+    }
+
+    // Check a password and open a session for it, leaving the desktop user
+    // alone. The lookup and password check run on the hashing pool.
+    public CompletableFuture<LoginResult> authenticateAsync(String username, String password) {
         if (username == null || username.trim().isEmpty()) {
-            return new LoginResult(false, "Username cannot be empty", null);
+            return CompletableFuture.completedFuture(new LoginResult(false, "Username cannot be empty", null));
         }
         if (password == null || password.isEmpty()) {
-            return new LoginResult(false, "Password cannot be empty", null);
+            return CompletableFuture.completedFuture(new LoginResult(false, "Password cannot be empty", null));
         }
 
-        String sql = "SELECT user_id, username, email, created_at FROM users " +
-                "WHERE username = ? AND password_hash = ?";
-
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, username.trim());
-            pstmt.setString(2, hashPassword(password));
+        return hasher.submit(() -> checkLogin(username.trim(), password))
+                .exceptionally(e -> new LoginResult(false, failureMessage("Login", e), null));
+    }
 
-            ResultSet rs = pstmt.executeQuery();
+    private LoginResult checkLogin(String username, String password) {
+        try {
+            UserRepository.Credentials credentials = repository.findCredentials(username);
 
-            if (rs.next()) {
-                User user = new User(
-                        rs.getInt("user_id"),
-                        rs.getString("username"),
-                        rs.getString("email"),
-                        rs.getTimestamp("created_at")
-                );
+            if (credentials != null && hasher.verify(password, credentials.passwordHash)) {
+                User user = credentials.user;
+                if (hasher.needsRehash(credentials.passwordHash)) {
+                    upgradeHash(user.getUserId(), password);
+                }
 
-                // Update last login
-                updateLastLogin(user.getUserId());
+                // Update last login (written in the background)
+                lastLoginWriter.stamp(user.getUserId());
 
-                // Set current user
-                this.currentUser = user;
+                // The token is what the game servers check
+                String token = SessionTokens.issue(user);
+                sessions.open(token);
 
                 System.out.println("User logged in: " + username);
-                return new LoginResult(true, "Login successful!", user);
+                return new LoginResult(true, "Login successful!", user, token);
             } else {
                 return new LoginResult(false, "Invalid username or password", null);
             }
@@ -151,39 +136,43 @@ public class UserAuthManager {
         }
     }
 
-    // Check if username exists
-    private boolean usernameExists(String username) {
-        String sql = "SELECT COUNT(*) FROM users WHERE username = ?";
-
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, username.trim());
-            ResultSet rs = pstmt.executeQuery();
+    // The session for a token; null if it was closed, went idle or expired
+    public SessionRegistry.Session getSession(String token) {
+        return sessions.get(token);
+    }
 
-            if (rs.next()) {
-                return rs.getInt(1) > 0;
-            }
-        } catch (SQLException e) {
-            System.err.println("Error checking username: " + e.getMessage());
-        }
+    public void endSession(String token) {
+        sessions.close(token);
+    }
 
-        return false;
+    public int getActiveSessionCount() {
+        return sessions.size();
     }
 
-    // Update last login timestamp
-    private void updateLastLogin(int userId) {
-        String sql = "UPDATE users SET last_login = CURRENT_TIMESTAMP WHERE user_id = ?";
+    // A full hashing queue gets a "try again" instead of an error
+    private static String failureMessage(String action, Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        if (cause instanceof RejectedExecutionException) {
+            return BUSY_MESSAGE;
+        }
+        System.err.println(action + " error: " + cause.getMessage());
+        return action + " failed: " + cause.getMessage();
+    }
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setInt(1, userId);
-            pstmt.executeUpdate();
+    // Legacy or weaker hash: store a current one now that we have the password
+    private void upgradeHash(int userId, String password) {
+        try {
+            repository.updatePasswordHash(userId, hasher.hash(password));
         } catch (SQLException e) {
-            System.err.println("Error updating last login: " + e.getMessage());
+            System.err.println("Error upgrading password hash: " + e.getMessage());
         }
     }
 
     // Logout current user
     public void logout() {
+        sessions.close(sessionToken);
         this.currentUser = null;
+        this.sessionToken = null;
         System.out.println("User logged out");
     }
 
@@ -192,6 +181,18 @@ public class UserAuthManager {
         return currentUser;
     }
 
+    // Signed session token from the last login, or null for guests
+    public String getSessionToken() {
+        return sessionToken;
+    }
+
+    // First line sent to a game server: the session token when logged in,
+    // otherwise the guest's name
+    public String getHandshakeLine(String guestName) {
+        String token = sessionToken;
+        return token != null ? SessionTokens.AUTH_PREFIX + token : guestName;
+    }
+
     // Check if user is logged in
     public boolean isLoggedIn() {
         return currentUser != null;
@@ -207,28 +208,24 @@ public class UserAuthManager {
         return isLoggedIn() ? currentUser.getUsername() : "Guest";
     }
 
-    // Get user statistics
+    // Get user statistics, summed from the per-game stats rollups
     public UserStats getUserStats(int userId) {
-        String sql = "SELECT " +
-                "COUNT(*) as total_games, " +
-                "SUM(score) as total_score, " +
-                "SUM(CASE WHEN won = TRUE THEN 1 ELSE 0 END) as total_wins, " +
-                "COUNT(DISTINCT game_name) as games_played " +
-                "FROM game_scores WHERE player_name = " +
-                "(SELECT username FROM users WHERE user_id = ?)";
-
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setInt(1, userId);
-            ResultSet rs = pstmt.executeQuery();
-
-            if (rs.next()) {
-                return new UserStats(
-                        rs.getInt("total_games"),
-                        rs.getInt("total_score"),
-                        rs.getInt("total_wins"),
-                        rs.getInt("games_played")
-                );
+        try {
+            String username = repository.findUsername(userId);
+            if (username == null) {
+                return new UserStats(0, 0, 0, 0);
             }
+
+            int totalGames = 0;
+            long totalScore = 0;
+            int totalWins = 0;
+            List<PlayerStats> perGame = DatabaseManager.getInstance().getAccountStats(userId, username);
+            for (PlayerStats stats : perGame) {
+                totalGames += stats.getGamesPlayed();
+                totalScore += stats.getTotalScore();
+                totalWins += stats.getWins();
+            }
+            return new UserStats(totalGames, (int) totalScore, totalWins, perGame.size());
         } catch (SQLException e) {
             System.err.println("Error getting user stats: " + e.getMessage());
         }
@@ -236,41 +233,11 @@ public class UserAuthManager {
         return null;
     }
 
-    // Close connection
+    // Write pending last-login times, then close the account store
     public void closeConnection() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-                System.out.println("UserAuth connection closed.");
-            }
-        } catch (SQLException e) {
-            System.err.println("Error closing connection: " + e.getMessage());
-        }
-    }
-}
-
-// User class
-class User {
-    private int userId;
-    private String username;
-    private String email;
-    private Timestamp createdAt;
-
-    public User(int userId, String username, String email, Timestamp createdAt) {
-        this.userId = userId;
-        this.username = username;
-        this.email = email;
-        this.createdAt = createdAt;
-    }
-
-    public int getUserId() { return userId; }
-    public String getUsername() { return username; }
-    public String getEmail() { return email; }
-    public Timestamp getCreatedAt() { return createdAt; }
-
-    @Override
-    public String toString() {
-        return "User: " + username + " (ID: " + userId + ")";
+        hasher.close();
+        lastLoginWriter.close();
+        repository.close();
     }
 }
 
@@ -279,16 +246,23 @@ class LoginResult {
     private boolean success;
     private String message;
     private User user;
+    private String sessionToken;
 
     public LoginResult(boolean success, String message, User user) {
+        this(success, message, user, null);
+    }
+
+    public LoginResult(boolean success, String message, User user, String sessionToken) {
         this.success = success;
         this.message = message;
         this.user = user;
+        this.sessionToken = sessionToken;
     }
 
     public boolean isSuccess() { return success; }
     public String getMessage() { return message; }
     public User getUser() { return user; }
+    public String getSessionToken() { return sessionToken; }
 }
 
 // Registration result class
@@ -0,0 +1,37 @@
+package GameProject;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Map;
+
+// Storage for player accounts, used by UserAuthManager
+interface UserRepository {
+    // Usernames compare case-insensitively, like the MySQL UNIQUE index.
+    // A taken username fails with SQLIntegrityConstraintViolationException.
+    void createUser(String username, String passwordHash, String email) throws SQLException;
+
+    // The user and stored password hash, or null if there is no such username
+    Credentials findCredentials(String username) throws SQLException;
+
+    // Replace the stored hash, e.g. after upgrading it on login
+    void updatePasswordHash(int userId, String passwordHash) throws SQLException;
+
+    // user_id -> login time, written as one batch
+    void updateLastLogins(Map<Integer, Timestamp> lastLogins) throws SQLException;
+
+    // null if there is no such user
+    String findUsername(int userId) throws SQLException;
+
+    // Release this store's own resources; a shared connection pool stays open
+    void close();
+
+    class Credentials {
+        final User user;
+        final String passwordHash;
+
+        Credentials(User user, String passwordHash) {
+            this.user = user;
+            this.passwordHash = passwordHash;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package GameProject;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Rolling "today" and "this week" leaderboards per (game, mode).
+// Each board keeps one top-N bucket per calendar day; a window is the merge
+// of its day buckets, and buckets older than DAYS_KEPT days are dropped as
+// the date rolls over.
+class WindowedLeaderboards {
+    public static final int DAYS_KEPT = 7;
+
+    private final Map<String, Board> boards = new ConcurrentHashMap<>();
+    private final long ttlMillis;
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    // ttlMillis <= 0 keeps boards until the process exits
+    public WindowedLeaderboards(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+    }
+
+    public LocalDate today() {
+        return LocalDate.now(zone);
+    }
+
+    public Timestamp startOf(LocalDate day) {
+        return Timestamp.from(day.atStartOfDay(zone).toInstant());
+    }
+
+    // Top entries of the last `days` days including today, or null if the
+    // board isn't loaded yet or is due for a reload
+    public List<GameScore> get(String gameName, String gameMode, int days, int limit) {
+        if (limit > LeaderboardCache.CAPACITY) {
+            return null;
+        }
+        Board board = boards.get(key(gameName, gameMode));
+        if (board == null || !board.complete || board.isExpired(ttlMillis)) {
+            return null;
+        }
+        return board.top(today(), days, limit);
+    }
+
+    // Whatever the board holds, even if expired or never fully loaded; null if
+    // there is no board. For when the database can't be reached in time.
+    public List<GameScore> getStale(String gameName, String gameMode, int days, int limit) {
+        Board board = boards.get(key(gameName, gameMode));
+        return board != null ? board.top(today(), days, limit) : null;
+    }
+
+    // Install the day buckets loaded from storage, keeping anything added meanwhile
+    public void load(String gameName, String gameMode, Collection<GameScore> scores) {
+        Board fresh = new Board(true);
+        fresh.addAll(scores);
+        Board previous = boards.put(key(gameName, gameMode), fresh);
+        if (previous != null) {
+            fresh.addAll(previous.all());
+        }
+    }
+
+    // Called for every committed score
+    public void add(GameScore score) {
+        boards.computeIfAbsent(key(score.getGameName(), score.getGameMode()), k -> new Board(false)).add(score);
+    }
+
+    private static String key(String gameName, String gameMode) {
+        return gameName + '\u0000' + gameMode;
+    }
+
+    private class Board {
+        private final TreeMap<LocalDate, TreeSet<GameScore>> days = new TreeMap<>();
+        private final long loadedAt = System.currentTimeMillis();
+        private final boolean complete;
+
+        Board(boolean complete) {
+            this.complete = complete;
+        }
+
+        synchronized void add(GameScore score) {
+            LocalDate day = score.getPlayedAt().toInstant().atZone(zone).toLocalDate();
+            expire();
+            if (day.isBefore(today().minusDays(DAYS_KEPT - 1))) {
+                return;
+            }
+
+            TreeSet<GameScore> bucket = days.computeIfAbsent(day, d -> new TreeSet<>(LeaderboardCache.ORDER));
+            bucket.add(score);
+            if (bucket.size() > LeaderboardCache.CAPACITY) {
+                bucket.pollLast();
+            }
+        }
+
+        synchronized void addAll(Collection<GameScore> scores) {
+            scores.forEach(this::add);
+        }
+
+        synchronized List<GameScore> all() {
+            List<GameScore> result = new ArrayList<>();
+            days.values().forEach(result::addAll);
+            return result;
+        }
+
+        synchronized List<GameScore> top(LocalDate today, int windowDays, int limit) {
+            expire();
+            List<GameScore> merged = new ArrayList<>();
+            for (TreeSet<GameScore> bucket : days.tailMap(today.minusDays(windowDays - 1), true).values()) {
+                merged.addAll(bucket);
+            }
+            merged.sort(LeaderboardCache.ORDER);
+            return new ArrayList<>(merged.subList(0, Math.min(limit, merged.size())));
+        }
+
+        private void expire() {
+            days.headMap(today().minusDays(DAYS_KEPT - 1)).clear();
+        }
+
+        boolean isExpired(long ttlMillis) {
+            return ttlMillis > 0 && System.currentTimeMillis() - loadedAt > ttlMillis;
+        }
+    }
+}